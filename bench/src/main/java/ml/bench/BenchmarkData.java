@@ -0,0 +1,114 @@
+package ml.bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import ml.control.SyntheticDataGenerator;
+
+/** BenchmarkData class
+ *  <p>
+ *  Resolves the datasets of the benchmarks to a names file and a data file in C4.5 format.
+ *  <p>
+ *  "car" and "wind" are the datasets of the data folder (by default ../data, or the folder given by the id3.data system property).
+ *  "synthetic" is written to a temporary folder, with the given numbers of rows, attributes and categories per attribute,
+ *  and 4 classes, by the SyntheticDataGenerator, with a planted tree of depth 6 and 5% of noise. The same parameters always give
+ *  the same files.
+ *
+ * */
+public class BenchmarkData {
+
+	/** The number of classes of synthetic datasets. */
+	private static final int SYNTHETIC_CLASSES=4;
+
+	/** The depth of the tree planted in synthetic datasets. */
+	private static final int SYNTHETIC_DEPTH=6;
+
+	/** The noise of synthetic datasets. */
+	private static final double SYNTHETIC_NOISE=0.05;
+
+	/** The names file. */
+	private File namesFile;
+
+	/** The data file. */
+	private File dataFile;
+
+	/** The temporary folder. */
+	private File tempFolder; //Only for synthetic datasets.
+
+	/**
+	 * Instantiates the files of a dataset, writing them if it is synthetic.
+	 *
+	 * @param dataset car, wind or synthetic
+	 * @param rows the number of rows (synthetic only)
+	 * @param attributes the number of attributes (synthetic only)
+	 * @param cardinality the number of categories of each attribute (synthetic only)
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public BenchmarkData(String dataset, int rows, int attributes, int cardinality) throws IOException{
+		if (dataset.equals("synthetic")){
+			tempFolder=java.nio.file.Files.createTempDirectory("id3bench").toFile();
+			namesFile=new File(tempFolder, "synthetic.c45-names");
+			dataFile=new File(tempFolder, "synthetic.data");
+			new SyntheticDataGenerator(attributes, cardinality, SYNTHETIC_CLASSES, Math.min(attributes, SYNTHETIC_DEPTH), SYNTHETIC_NOISE, 42)
+					.write(namesFile.getPath(), dataFile.getPath(), rows);
+		}
+		else{
+			File folder=new File(System.getProperty("id3.data", "../data"), dataset);
+			namesFile=new File(folder, dataset+".c45-names");
+			dataFile=new File(folder, dataset+".data");
+			if (!namesFile.isFile() || !dataFile.isFile()){
+				throw new IOException("Dataset not found: "+folder.getAbsolutePath());
+			}
+		}
+	}
+
+	/**
+	 * Gets the names file.
+	 *
+	 * @return the names file
+	 */
+	public String getNamesFile(){
+		return namesFile.getPath();
+	}
+
+	/**
+	 * Gets the data file.
+	 *
+	 * @return the data file
+	 */
+	public String getDataFile(){
+		return dataFile.getPath();
+	}
+
+	/**
+	 * Function that returns a temporary file for the outputs of a benchmark.
+	 *
+	 * @param suffix the suffix
+	 * @return the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static String createOutputFile(String suffix) throws IOException{
+		File file=File.createTempFile("id3bench", suffix);
+		file.deleteOnExit();
+		return file.getPath();
+	}
+
+	/**
+	 * Function that deletes the binary cache of the dataset, if any.
+	 */
+	public void deleteCache(){
+		new File(dataFile.getPath()+".id3cache").delete();
+	}
+
+	/**
+	 * Function that deletes the files written for the dataset, and its cache.
+	 */
+	public void delete(){
+		deleteCache();
+		if (tempFolder!=null){
+			namesFile.delete();
+			dataFile.delete();
+			tempFolder.delete();
+		}
+	}
+}
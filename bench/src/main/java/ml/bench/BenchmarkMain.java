@@ -0,0 +1,36 @@
+package ml.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** BenchmarkMain class
+ *  <p>
+ *  Runs the benchmarks with the gc profiler, so that the results include the allocation rate next to the throughput,
+ *  and writes them to jmh-result.json. The arguments are those of the JMH command line (benchmark patterns, -p, -f, ...).
+ *
+ * */
+public class BenchmarkMain {
+
+	/**
+	 * Main function.
+	 *
+	 * @param args the JMH command line arguments
+	 * @throws RunnerException Signals that a benchmark failed.
+	 * @throws CommandLineOptionException Signals that the arguments are not valid.
+	 */
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException{
+		Options options=new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result("jmh-result.json")
+				.build();
+		new Runner(options).run();
+	}
+}
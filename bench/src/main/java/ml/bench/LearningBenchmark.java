@@ -0,0 +1,199 @@
+package ml.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.control.ID3Learning;
+
+/** LearningBenchmark class
+ *  <p>
+ *  Benchmarks of loadData, learnTreeWithID3 and reducedErrorPruneTree.
+ *  <p>
+ *  rows, attributes and cardinality only apply to the synthetic dataset. Pruning modifies the tree, so it is learned
+ *  again before each call, outside of the measurement. As a pruning can take only microseconds, it is measured in single shot
+ *  mode, one call per iteration, with the tree learned before each iteration: a setup before each invocation would add the
+ *  overhead of JMH to such short calls.
+ *
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+public class LearningBenchmark {
+
+	/** LoadState class
+	 *  <p>
+	 *  Files of the dataset, loaded from the text or from the binary cache.
+	 * */
+	@State(Scope.Benchmark)
+	public static class LoadState {
+
+		/** The dataset. */
+		@Param({"car", "wind", "synthetic"})
+		public String dataset;
+
+		/** The rows. */
+		@Param({"100000"})
+		public int rows;
+
+		/** The attributes. */
+		@Param({"20"})
+		public int attributes;
+
+		/** The cardinality. */
+		@Param({"8"})
+		public int cardinality;
+
+		/** The dataset cache flag. */
+		@Param({"false", "true"})
+		public boolean datasetCache;
+
+		/** The data. */
+		BenchmarkData data;
+
+		/**
+		 * Writes the dataset, if needed, and its cache, if used.
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		@Setup(Level.Trial)
+		public void setUp() throws IOException{
+			data=new BenchmarkData(dataset, rows, attributes, cardinality);
+			data.deleteCache(); //Any cache left by a previous trial
+			if (datasetCache){
+				ID3Learning app=new ID3Learning();
+				app.loadData(data.getNamesFile(), data.getDataFile());
+			}
+		}
+
+		/**
+		 * Deletes the files written.
+		 */
+		@TearDown(Level.Trial)
+		public void tearDown(){
+			data.delete();
+		}
+	}
+
+	/** TrainState class
+	 *  <p>
+	 *  Loaded data, for learning the tree.
+	 * */
+	@State(Scope.Benchmark)
+	public static class TrainState {
+
+		/** The dataset. */
+		@Param({"car", "wind", "synthetic"})
+		public String dataset;
+
+		/** The rows. */
+		@Param({"100000"})
+		public int rows;
+
+		/** The attributes. */
+		@Param({"20"})
+		public int attributes;
+
+		/** The cardinality. */
+		@Param({"8"})
+		public int cardinality;
+
+		/** The data. */
+		BenchmarkData data;
+
+		/** The app. */
+		ID3Learning app;
+
+		/**
+		 * Loads the dataset.
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		@Setup(Level.Trial)
+		public void setUp() throws IOException{
+			data=new BenchmarkData(dataset, rows, attributes, cardinality);
+			app=new ID3Learning();
+			app.setDatasetCache(false);
+			app.loadData(data.getNamesFile(), data.getDataFile());
+		}
+
+		/**
+		 * Deletes the files written.
+		 */
+		@TearDown(Level.Trial)
+		public void tearDown(){
+			data.delete();
+		}
+	}
+
+	/** PruneState class
+	 *  <p>
+	 *  Loaded data and a learned tree, learned again before each iteration, which prunes it once.
+	 * */
+	@State(Scope.Benchmark)
+	public static class PruneState extends TrainState {
+
+		/**
+		 * Learns the tree to be pruned.
+		 */
+		@Setup(Level.Iteration)
+		public void learn(){
+			app.learnTreeWithID3();
+		}
+	}
+
+	/**
+	 * Benchmark of loadData.
+	 *
+	 * @param state the state
+	 * @return the app
+	 */
+	@Benchmark
+	public ID3Learning loadData(LoadState state){
+		ID3Learning app=new ID3Learning();
+		app.setDatasetCache(state.datasetCache);
+		app.loadData(state.data.getNamesFile(), state.data.getDataFile());
+		return app;
+	}
+
+	/**
+	 * Benchmark of learnTreeWithID3.
+	 *
+	 * @param state the state
+	 * @return the int
+	 */
+	@Benchmark
+	public int learnTreeWithID3(TrainState state){
+		return state.app.learnTreeWithID3();
+	}
+
+	/**
+	 * Benchmark of reducedErrorPruneTree.
+	 *
+	 * @param state the state
+	 * @return the int
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations=20)
+	@Measurement(iterations=100)
+	public int reducedErrorPruneTree(PruneState state){
+		return state.app.reducedErrorPruneTree();
+	}
+}
@@ -0,0 +1,152 @@
+package ml.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.control.ID3Learning;
+import ml.control.ID3Metrics;
+import ml.model.CategoricalType;
+import ml.model.Classifier;
+import ml.model.CompiledTree;
+import ml.model.DecisionTree;
+import ml.model.ModelFile;
+
+/** ScoringBenchmark class
+ *  <p>
+ *  Benchmark of classify, over a learned tree (the benchmarks which do not depend on the classifier are in TreeBenchmark).
+ *  <p>
+ *  classify is measured for NUM_TUPLES random tuples per call (the score is per tuple), with the classifier given by the
+ *  classifier parameter: the DecisionTree itself, its CompiledTree, the class generated by generateClassifier, that class
+ *  wrapped with ID3Metrics.meter (to measure the cost of recording each call), or the classifier of its model file,
+ *  reading the mapped file. rows, attributes and cardinality only apply to the synthetic dataset.
+ *
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScoringBenchmark {
+
+	/** The number of tuples classified per call. */
+	private static final int NUM_TUPLES=1024;
+
+	/** The dataset. */
+	@Param({"car", "wind", "synthetic"})
+	public String dataset;
+
+	/** The rows. */
+	@Param({"100000"})
+	public int rows;
+
+	/** The attributes. */
+	@Param({"20"})
+	public int attributes;
+
+	/** The cardinality. */
+	@Param({"8"})
+	public int cardinality;
+
+	/** The classifier. */
+	@Param({"tree", "compiled", "generated", "metered", "mapped"})
+	public String classifier;
+
+	/** The data. */
+	private BenchmarkData data;
+
+	/** The app. */
+	private ID3Learning app;
+
+	/** The tuple classifier. */
+	private Classifier tupleClassifier;
+
+	/** The tuples. */
+	private int[][] tuples;
+
+	/**
+	 * Loads the dataset, learns the tree and builds the classifier.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException{
+		data=new BenchmarkData(dataset, rows, attributes, cardinality);
+		app=new ID3Learning();
+		app.setDatasetCache(false);
+		app.loadData(data.getNamesFile(), data.getDataFile());
+		app.learnTreeWithID3();
+		String modelFile=BenchmarkData.createOutputFile(".model");
+		app.saveModel(modelFile);
+		ModelFile model=ModelFile.load(modelFile);
+		final DecisionTree tree=model.getTree();
+		if (classifier.equals("tree")){
+			tupleClassifier=new Classifier(){
+				@Override
+				public int classify(int[] tuple){
+					return tree.classify(tuple);
+				}
+			};
+		}
+		else if (classifier.equals("compiled")){
+			tupleClassifier=CompiledTree.compile(tree);
+		}
+		else if (classifier.equals("generated")){
+			tupleClassifier=app.generateClassifier();
+		}
+		else if (classifier.equals("metered")){
+			tupleClassifier=ID3Metrics.getInstance().meter(app.generateClassifier());
+		}
+		else{
+			tupleClassifier=model.getClassifier();
+		}
+		List<CategoricalType> headers=model.getAttributeHeaderList();
+		Random random=new Random(42);
+		tuples=new int[NUM_TUPLES][headers.size()];
+		for (int t=0; t<NUM_TUPLES; t++){
+			for (int a=0; a<headers.size(); a++){
+				tuples[t][a]=random.nextInt(headers.get(a).getNumCategories());
+			}
+		}
+	}
+
+	/**
+	 * Deletes the files written.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown(){
+		data.delete();
+	}
+
+	/**
+	 * Benchmark of classify.
+	 *
+	 * @return the sum of the classes assigned
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NUM_TUPLES)
+	public int classify(){
+		int sum=0;
+		for (int t=0; t<NUM_TUPLES; t++){
+			sum+=tupleClassifier.classify(tuples[t]);
+		}
+		return sum;
+	}
+}
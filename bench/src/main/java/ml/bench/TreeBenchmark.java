@@ -0,0 +1,103 @@
+package ml.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.control.ID3Learning;
+
+/** TreeBenchmark class
+ *  <p>
+ *  Benchmarks of getAccuracyOverValidationData and treeToXML, over a learned tree. They do not depend on the classifier
+ *  parameter of ScoringBenchmark, so they have a state of their own. rows, attributes and cardinality only apply to the synthetic dataset.
+ *
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreeBenchmark {
+
+	/** The dataset. */
+	@Param({"car", "wind", "synthetic"})
+	public String dataset;
+
+	/** The rows. */
+	@Param({"100000"})
+	public int rows;
+
+	/** The attributes. */
+	@Param({"20"})
+	public int attributes;
+
+	/** The cardinality. */
+	@Param({"8"})
+	public int cardinality;
+
+	/** The data. */
+	private BenchmarkData data;
+
+	/** The app. */
+	private ID3Learning app;
+
+	/** The xml file. */
+	private String xmlFile;
+
+	/**
+	 * Loads the dataset and learns the tree.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException{
+		data=new BenchmarkData(dataset, rows, attributes, cardinality);
+		app=new ID3Learning();
+		app.setDatasetCache(false);
+		app.loadData(data.getNamesFile(), data.getDataFile());
+		app.learnTreeWithID3();
+		xmlFile=BenchmarkData.createOutputFile(".xml");
+	}
+
+	/**
+	 * Deletes the files written.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown(){
+		data.delete();
+	}
+
+	/**
+	 * Benchmark of getAccuracyOverValidationData.
+	 *
+	 * @return the accuracy
+	 */
+	@Benchmark
+	public double getAccuracyOverValidationData(){
+		return app.getAccuracyOverValidationData();
+	}
+
+	/**
+	 * Benchmark of treeToXML.
+	 *
+	 * @return the int
+	 */
+	@Benchmark
+	public int treeToXML(){
+		return app.treeToXML(xmlFile);
+	}
+}
@@ -0,0 +1,178 @@
+package ml.control;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import ml.model.CategoricalType;
+import ml.model.Dataset;
+
+/**
+ * CLASS C45DataParser
+ * <p>
+ * Parser for data files in C4.5 format (one instance per line, values separated by commas, class in the last position).
+ * <p>
+ * The file is memory-mapped through a FileChannel, in chunks of at most MAX_CHUNK bytes that end at a line break,
+ * and its bytes are tokenized directly: each field is collected, without whitespace, into a reusable byte buffer and
+ * mapped to the number of its category, which is written straight into the columns of a Dataset. No String is created per field or line.
+ * <p>
+ * As with the previous, String based, loading: whitespace inside fields is ignored and blank lines are skipped. Lines with empty
+ * fields, or with fewer or more fields than the attributes and the class, are rejected with an IllegalArgumentException which gives
+ * the line number, and so are values which are not categories of their attribute (by the Dataset).
+ *
+ */
+public class C45DataParser {
+
+	/** Maximum number of bytes mapped at once. */
+	private static final int MAX_CHUNK=1<<30;
+
+	/**Private constructor function, to defeat instantiation. */
+	private C45DataParser(){
+		// Exists only to defeat instantiation.
+	}
+
+	/**
+	 * Function that parses a data file, appending its instances to a dataset.
+	 *
+	 * @param dataFile the data file
+	 * @param target the dataset, with the headers read from the names file
+	 * @return the number of bytes parsed
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static long parse(String dataFile, Dataset target) throws IOException{
+		FileChannel channel=FileChannel.open(Paths.get(dataFile), StandardOpenOption.READ);
+		try {
+			Tokenizer tokenizer=new Tokenizer(target);
+			long size=channel.size();
+			long position=0;
+			while (position<size){
+				int length=(int)Math.min(MAX_CHUNK, size-position);
+				MappedByteBuffer buffer=channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				int end=length;
+				if (position+length<size){ //Not the last chunk: we parse up to its last line break, and map the rest again.
+					while (end>0 && buffer.get(end-1)!='\n'){
+						end--;
+					}
+					if (end==0){
+						throw new IOException("Line longer than "+MAX_CHUNK+" bytes in "+dataFile);
+					}
+				}
+				tokenizer.parse(buffer, end);
+				position+=end;
+			}
+			tokenizer.endLine();
+			return size;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/** Tokenizer class
+	 *  <p>
+	 *  Keeps the state of the line being parsed, which allows lines to continue across calls.
+	 * */
+	private static class Tokenizer {
+
+		/** The target. */
+		private Dataset target;
+
+		/** The headers. */
+		private CategoricalType[] headers; //Header of each column, the class in the last position.
+
+		/** The field. */
+		private byte[] field=new byte[64]; //Bytes of the current field, without whitespace.
+
+		/** The field length. */
+		private int fieldLength=0;
+
+		/** The column. */
+		private int column=0; //Column of the current field.
+
+		/** The row. */
+		private int row=-1; //Row of the current line, -1 while the line is blank.
+
+		/** The line. */
+		private long line=1; //Number of the current line in the file, from 1.
+
+		/**
+		 * Instantiates a new tokenizer.
+		 *
+		 * @param target the target
+		 */
+		Tokenizer(Dataset target){
+			this.target=target;
+			headers=new CategoricalType[target.getNumAttributes()+1];
+			for (int i=0; i<headers.length; i++){
+				headers[i]=target.getHeader(i);
+			}
+		}
+
+		/**
+		 * Function that parses the bytes of a buffer, from position 0 to end (exclusive).
+		 *
+		 * @param buffer the buffer
+		 * @param end the end
+		 */
+		void parse(MappedByteBuffer buffer, int end){
+			for (int i=0; i<end; i++){
+				byte b=buffer.get(i);
+				switch (b){
+				case '\n':
+					endLine();
+					break;
+				case ',':
+					if (row<0){
+						row=target.newRow();
+					}
+					endField();
+					column++;
+					break;
+				case ' ': case '\t': case '\r': case '\f': case 0x0B:
+					break; //Whitespace is ignored, as in the names of the categories
+				default:
+					if (row<0){
+						row=target.newRow();
+					}
+					if (fieldLength==field.length){
+						byte aux[]=new byte[field.length*2];
+						System.arraycopy(field, 0, aux, 0, fieldLength);
+						field=aux;
+					}
+					field[fieldLength++]=b;
+				}
+			}
+		}
+
+		/**
+		 * Function that finishes the current line.
+		 */
+		void endLine(){
+			if (row>=0){
+				endField();
+				if (column!=headers.length-1){
+					throw new IllegalArgumentException("Missing values in line "+line+": "+(column+1)+" of "+headers.length);
+				}
+			}
+			line++;
+			row=-1;
+			column=0;
+			fieldLength=0;
+		}
+
+		/**
+		 * Function that maps the current field to the number of its category and stores it.
+		 */
+		private void endField(){
+			if (column>=headers.length){
+				throw new IllegalArgumentException("Too many values in line "+line+": more than "+headers.length);
+			}
+			if (fieldLength==0){
+				throw new IllegalArgumentException("Empty value for "+headers[column].getName()+" in line "+line);
+			}
+			target.setValue(row, column, headers[column].getNumRepresentationOfCategory(field, 0, fieldLength));
+			fieldLength=0;
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package ml.control;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import ml.model.CategoricalType;
+import ml.model.Dataset;
+
+/**
+ * CLASS DatasetCache
+ * <p>
+ * Binary cache of a dataset parsed from a names file and a data file in C4.5 format, so that later loads
+ * skip the parsing of the text. The cache is stored next to the data file, with the extension CACHE_EXTENSION.
+ * <p>
+ * FORMAT (big-endian):
+ * <p>
+ * int magic, int version,
+ * long size and long last-modified time of the names file, and the same for the data file,
+ * the class header and then the int number of attributes followed by each attribute header, where each header is
+ * a string (name), an int (number of categories) and the strings of its categories, and a string is an int length followed by UTF-8 bytes,
+ * int number of rows, and then, for each column (attributes and class), its values as bytes or as shorts, according to the number
+ * of categories of its header (the same choice made by Dataset).
+ * <p>
+ * The cache is valid only if the sizes and last-modified times of both source files match those stored.
+ * It is written to a temporary file that is then moved into place, and it is read by memory-mapping it.
+ *
+ */
+public class DatasetCache {
+
+	/** The extension of cache files. */
+	public static final String CACHE_EXTENSION=".id3cache";
+
+	/** The magic number (ID3D). */
+	private static final int MAGIC=0x49443344;
+
+	/** The version. */
+	private static final int VERSION=1;
+
+	/** Maximum number of bytes mapped or written at once. */
+	private static final int MAX_CHUNK=1<<30;
+
+	/**Private constructor function, to defeat instantiation. */
+	private DatasetCache(){
+		// Exists only to defeat instantiation.
+	}
+
+	/**
+	 * Function that returns the cache file of a data file.
+	 *
+	 * @param dataFile the data file
+	 * @return the cache file
+	 */
+	public static File getCacheFile(String dataFile){
+		return new File(dataFile+CACHE_EXTENSION);
+	}
+
+	/**
+	 * Function that loads a dataset from the cache of a pair of files.
+	 *
+	 * @param namesFile the names file
+	 * @param dataFile the data file
+	 * @return the dataset, or null if there is no valid cache
+	 */
+	public static Dataset load(String namesFile, String dataFile){
+		File cacheFile=getCacheFile(dataFile);
+		if (!cacheFile.isFile()){
+			return null;
+		}
+		try {
+			FileChannel channel=FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ);
+			try {
+				long size=channel.size();
+				MappedByteBuffer header=channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_CHUNK));
+				if (header.getInt()!=MAGIC || header.getInt()!=VERSION){
+					return null;
+				}
+				File names=new File(namesFile);
+				File data=new File(dataFile);
+				if (header.getLong()!=names.length() || header.getLong()!=names.lastModified()
+						|| header.getLong()!=data.length() || header.getLong()!=data.lastModified()){
+					return null; //The source files changed
+				}
+				CategoricalType classHeader=readHeader(header);
+				if (classHeader==null){
+					return null;
+				}
+				int numAttributes=header.getInt();
+				List<CategoricalType> attributeHeaderList=new ArrayList<CategoricalType>();
+				for (int i=0; i<numAttributes; i++){
+					CategoricalType attributeHeader=readHeader(header);
+					if (attributeHeader==null){
+						return null;
+					}
+					attributeHeaderList.add(attributeHeader);
+				}
+				int numRows=header.getInt();
+				if (numRows<0 || (long)numRows*(numAttributes+1)>size-header.position()){
+					return null; //Truncated or corrupt: the columns, of at least a byte per value, cannot fit in the file
+				}
+				Dataset result=new Dataset(attributeHeaderList, classHeader, numRows);
+				result.newRows(numRows);
+				long position=header.position();
+				for (int i=0; i<=numAttributes; i++){
+					int width=result.isByteColumn(i)?1:2;
+					int rowsRead=0;
+					while (rowsRead<numRows){
+						int rowsInChunk=Math.min(numRows-rowsRead, MAX_CHUNK/width);
+						MappedByteBuffer buffer=channel.map(FileChannel.MapMode.READ_ONLY, position, (long)rowsInChunk*width);
+						if (width==1){
+							buffer.get(result.getByteColumn(i), rowsRead, rowsInChunk);
+						}
+						else{
+							buffer.asShortBuffer().get(result.getShortColumn(i), rowsRead, rowsInChunk);
+						}
+						rowsRead+=rowsInChunk;
+						position+=(long)rowsInChunk*width;
+					}
+				}
+				return result;
+			} finally {
+				channel.close();
+			}
+		} catch (IOException | RuntimeException e) {
+			return null; //A cache that cannot be read is ignored, and the text is parsed again
+		}
+	}
+
+	/**
+	 * Function that saves a dataset as the cache of a pair of files.
+	 *
+	 * @param namesFile the names file
+	 * @param dataFile the data file
+	 * @param dataset the dataset parsed from the files
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void save(String namesFile, String dataFile, Dataset dataset) throws IOException{
+		File cacheFile=getCacheFile(dataFile);
+		Path tempFile=Files.createTempFile(cacheFile.getAbsoluteFile().getParentFile().toPath(), cacheFile.getName(), ".tmp");
+		try {
+			FileChannel channel=FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			try {
+				File names=new File(namesFile);
+				File data=new File(dataFile);
+				ByteBuffer header=ByteBuffer.allocate(headerSize(dataset));
+				header.putInt(MAGIC);
+				header.putInt(VERSION);
+				header.putLong(names.length());
+				header.putLong(names.lastModified());
+				header.putLong(data.length());
+				header.putLong(data.lastModified());
+				writeHeader(header, dataset.getClassHeader());
+				header.putInt(dataset.getNumAttributes());
+				for (int i=0; i<dataset.getNumAttributes(); i++){
+					writeHeader(header, dataset.getHeader(i));
+				}
+				header.putInt(dataset.getNumRows());
+				header.flip();
+				writeFully(channel, header);
+				int numRows=dataset.getNumRows();
+				for (int i=0; i<=dataset.getNumAttributes(); i++){
+					if (dataset.isByteColumn(i)){
+						writeFully(channel, ByteBuffer.wrap(dataset.getByteColumn(i), 0, numRows));
+					}
+					else{
+						short column[]=dataset.getShortColumn(i);
+						for (int written=0; written<numRows; ){
+							int rowsInChunk=Math.min(numRows-written, 1<<20);
+							ByteBuffer buffer=ByteBuffer.allocate(rowsInChunk*2);
+							buffer.asShortBuffer().put(column, written, rowsInChunk);
+							writeFully(channel, buffer);
+							written+=rowsInChunk;
+						}
+					}
+				}
+			} finally {
+				channel.close();
+			}
+			Files.move(tempFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Function that returns the number of bytes of the header of a cache file.
+	 *
+	 * @param dataset the dataset
+	 * @return the header size
+	 */
+	private static int headerSize(Dataset dataset){
+		int size=4+4+8*4+4+4;
+		for (int i=0; i<=dataset.getNumAttributes(); i++){
+			CategoricalType header=dataset.getHeader(i);
+			size+=4+header.getName().getBytes(StandardCharsets.UTF_8).length+4;
+			for (int j=0; j<header.getNumCategories(); j++){
+				size+=4+header.getCategory(j).getBytes(StandardCharsets.UTF_8).length;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Function that writes a CategoricalType.
+	 *
+	 * @param buffer the buffer
+	 * @param header the header
+	 */
+	private static void writeHeader(ByteBuffer buffer, CategoricalType header){
+		writeString(buffer, header.getName());
+		buffer.putInt(header.getNumCategories());
+		for (int i=0; i<header.getNumCategories(); i++){
+			writeString(buffer, header.getCategory(i));
+		}
+	}
+
+	/**
+	 * Function that reads a CategoricalType.
+	 *
+	 * @param buffer the buffer
+	 * @return the categorical type, or null if a string cannot be read
+	 */
+	private static CategoricalType readHeader(ByteBuffer buffer){
+		CategoricalType header=new CategoricalType();
+		String name=readString(buffer);
+		if (name==null){
+			return null;
+		}
+		header.setName(name);
+		int numCategories=buffer.getInt();
+		for (int i=0; i<numCategories; i++){
+			String category=readString(buffer);
+			if (category==null){
+				return null;
+			}
+			header.addCategory(category);
+		}
+		return header;
+	}
+
+	/**
+	 * Function that writes a string, as its length followed by its UTF-8 bytes.
+	 *
+	 * @param buffer the buffer
+	 * @param value the value
+	 */
+	static void writeString(ByteBuffer buffer, String value){
+		byte bytes[]=value.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Function that reads a string, written as its length followed by its UTF-8 bytes.
+	 *
+	 * @param buffer the buffer
+	 * @return the string, or null if its length is negative or beyond the end of the buffer
+	 */
+	static String readString(ByteBuffer buffer){
+		int length=buffer.getInt();
+		if (length<0 || length>buffer.remaining()){
+			return null; //Checked before allocating, as the length comes from a file which may be corrupt
+		}
+		byte bytes[]=new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Function that writes all the remaining bytes of a buffer to a channel.
+	 *
+	 * @param channel the channel
+	 * @param buffer the buffer
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException{
+		while (buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package ml.control;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * CLASS DatasetLoadEvent
+ * <p>
+ * Flight Recorder event of a call to ID3Learning.loadData. It is disabled by default.
+ *
+ */
+@Name("ml.id3.DatasetLoad")
+@Label("Dataset Load")
+@Category("ID3")
+@Description("Loading of a dataset from a names file and a data file")
+@Enabled(false)
+@StackTrace(false)
+class DatasetLoadEvent extends Event {
+
+	/** The data file. */
+	@Label("Data File")
+	String dataFile;
+
+	/** The bytes. */
+	@Label("Size")
+	@DataAmount
+	long bytes;
+
+	/** The rows. */
+	@Label("Rows")
+	int rows;
+
+	/** The from cache flag. */
+	@Label("From Cache")
+	@Description("If the data was read from its binary cache, instead of parsed")
+	boolean fromCache;
+}
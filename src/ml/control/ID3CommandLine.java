@@ -0,0 +1,216 @@
+package ml.control;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * CLASS ID3CommandLine
+ * <p>
+ * Headless command line for learning a tree with ID3Learning, without the GUI (Swing and AWT are never loaded), so that
+ * batch jobs can train many models by passing arguments instead of editing the constants of ID3Learning.
+ * <p>
+ * USAGE: java ml.control.ID3CommandLine --names FILE --data FILE [OPTIONS]
+ * <p>
+ * OPTIONS:
+ *  --split P: percentage (from 0 to 1) of the data used for training, the rest is for validation. 0.7 by default.
+ *  --seed N: seed for dividing the data, so that runs are repeatable. Random by default.
+ *  --prune / --no-prune: whether the tree is pruned with reduced error pruning. Pruned by default.
+ *  --model FILE: writes the tree as a binary model file (see ModelFile).
+ *  --xml FILE: writes the tree as XML.
+ *  --parallelism N: number of threads for learning the tree. 1 by default.
+ *  --bitmap: learns the tree with the bitmap-based engine.
+ *  --no-cache: does not read or write the binary cache of the data.
+ *  --timing: reports the time of each phase.
+ * <p>
+ * The accuracies over the validation data, and the number of nodes, are printed. The exit status is 0 on success,
+ * 1 if a file cannot be read, parsed or written, and 2 if the arguments are not valid.
+ *
+ */
+public class ID3CommandLine {
+
+	/** The usage. */
+	private static final String USAGE="Usage: java ml.control.ID3CommandLine --names FILE --data FILE [--split P] [--seed N] [--prune|--no-prune]"
+			+" [--model FILE] [--xml FILE] [--parallelism N] [--bitmap] [--no-cache] [--timing]";
+
+	/**Private constructor function, to defeat instantiation. */
+	private ID3CommandLine(){
+		// Exists only to defeat instantiation.
+	}
+
+	/**
+	 * Main function.
+	 *
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args){
+		System.exit(run(args, System.out, System.err));
+	}
+
+	/**
+	 * Function that runs the command line.
+	 *
+	 * @param args the command line arguments
+	 * @param out the stream for the results
+	 * @param err the stream for the errors
+	 * @return the exit status
+	 */
+	static int run(String[] args, PrintStream out, PrintStream err){
+		String namesFile=null;
+		String dataFile=null;
+		String modelFile=null;
+		String xmlFile=null;
+		boolean prune=true;
+		boolean timing=false;
+		ID3Learning app=new ID3Learning();
+		try {
+			for (int i=0; i<args.length; i++){
+				String arg=args[i];
+				if (arg.equals("--names")){
+					namesFile=value(args, ++i, arg);
+				}
+				else if (arg.equals("--data")){
+					dataFile=value(args, ++i, arg);
+				}
+				else if (arg.equals("--split")){
+					double percentage=Double.parseDouble(value(args, ++i, arg));
+					if (!(percentage>0 && percentage<1)){
+						throw new IllegalArgumentException("--split must be between 0 and 1");
+					}
+					app.setPercentage(percentage);
+				}
+				else if (arg.equals("--seed")){
+					app.setSeed(Long.parseLong(value(args, ++i, arg)));
+				}
+				else if (arg.equals("--prune")){
+					prune=true;
+				}
+				else if (arg.equals("--no-prune")){
+					prune=false;
+				}
+				else if (arg.equals("--model")){
+					modelFile=value(args, ++i, arg);
+				}
+				else if (arg.equals("--xml")){
+					xmlFile=value(args, ++i, arg);
+				}
+				else if (arg.equals("--parallelism")){
+					int parallelism=Integer.parseInt(value(args, ++i, arg));
+					if (parallelism<1){
+						throw new IllegalArgumentException("--parallelism must be at least 1");
+					}
+					app.setParallelism(parallelism);
+				}
+				else if (arg.equals("--bitmap")){
+					app.setBitmapInduction(true);
+				}
+				else if (arg.equals("--no-cache")){
+					app.setDatasetCache(false);
+				}
+				else if (arg.equals("--timing")){
+					timing=true;
+				}
+				else if (arg.equals("--help") || arg.equals("-h")){
+					out.println(USAGE);
+					return 0;
+				}
+				else{
+					throw new IllegalArgumentException("Unknown argument: "+arg);
+				}
+			}
+			if (namesFile==null || dataFile==null){
+				throw new IllegalArgumentException("--names and --data are required");
+			}
+		} catch (IllegalArgumentException e) { //Also for numbers which cannot be parsed
+			err.println(e.getMessage());
+			err.println(USAGE);
+			return 2;
+		}
+		if (!new File(namesFile).isFile() || !new File(dataFile).isFile()){
+			err.println("Cannot read "+(new File(namesFile).isFile()?dataFile:namesFile));
+			return 1;
+		}
+		List<String> phases=new ArrayList<String>();
+		List<Long> phaseNanos=new ArrayList<Long>();
+		long start=System.nanoTime();
+		try {
+			if (app.loadData(namesFile, dataFile)!=1){
+				err.println("Cannot read "+dataFile);
+				return 1;
+			}
+		} catch (RuntimeException e) { //Empty, missing or extra values and unknown categories in the data, malformed names
+			err.println("Cannot load "+namesFile+" and "+dataFile+": "+e.getMessage());
+			return 1;
+		}
+		start=endPhase("load", start, phases, phaseNanos);
+		app.learnTreeWithID3();
+		start=endPhase("train", start, phases, phaseNanos);
+		out.println("Nodes: "+app.getNumNodes());
+		out.println("Accuracy: "+app.getAccuracyOverValidationData());
+		start=endPhase("evaluate", start, phases, phaseNanos);
+		if (prune){
+			app.reducedErrorPruneTree();
+			start=endPhase("prune", start, phases, phaseNanos);
+			out.println("Nodes after pruning: "+app.getNumNodes());
+			out.println("Accuracy after pruning: "+app.getAccuracyOverValidationData());
+			start=endPhase("evaluate pruned", start, phases, phaseNanos);
+		}
+		int status=0;
+		if (modelFile!=null){
+			if (app.saveModel(modelFile)!=1){
+				err.println("Cannot write "+modelFile);
+				status=1;
+			}
+			start=endPhase("write model", start, phases, phaseNanos);
+		}
+		if (xmlFile!=null){
+			if (app.treeToXML(xmlFile)!=1){
+				err.println("Cannot write "+xmlFile);
+				status=1;
+			}
+			start=endPhase("write XML", start, phases, phaseNanos);
+		}
+		if (timing){
+			long total=0;
+			for (int i=0; i<phases.size(); i++){
+				out.println(String.format(Locale.ROOT, "Time %-16s %10.3f ms", phases.get(i)+":", phaseNanos.get(i)/1e6));
+				total+=phaseNanos.get(i);
+			}
+			out.println(String.format(Locale.ROOT, "Time %-16s %10.3f ms", "total:", total/1e6));
+		}
+		return status;
+	}
+
+	/**
+	 * Function that returns the value of an option.
+	 *
+	 * @param args the arguments
+	 * @param index the position of the value
+	 * @param option the option
+	 * @return the value
+	 */
+	private static String value(String[] args, int index, String option){
+		if (index>=args.length){
+			throw new IllegalArgumentException(option+" needs a value");
+		}
+		return args[index];
+	}
+
+	/**
+	 * Function that records the time of a phase.
+	 *
+	 * @param phase the phase
+	 * @param start the start of the phase, from System.nanoTime
+	 * @param phases the phases
+	 * @param phaseNanos the time of each phase
+	 * @return the end of the phase, which is the start of the next one
+	 */
+	private static long endPhase(String phase, long start, List<String> phases, List<Long> phaseNanos){
+		long end=System.nanoTime();
+		phases.add(phase);
+		phaseNanos.add(end-start);
+		return end;
+	}
+}
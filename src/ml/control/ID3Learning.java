@@ -1,17 +1,33 @@
 package ml.control;
 
 import java.io.BufferedReader;
-import java.io.FileNotFoundException;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 
+import ml.model.BitmapInduction;
 import ml.model.CategoricalType;
+import ml.model.Classifier;
+import ml.model.ClassifierGenerator;
+import ml.model.CompiledTree;
+import ml.model.Dataset;
 import ml.model.DecisionTree;
+import ml.model.InductionContext;
+import ml.model.ModelFile;
+import ml.model.PruningTrajectory;
+import ml.model.ReducedErrorPruning;
+import ml.model.TreeNodeView;
+import ml.model.XmlTreeWriter;
 // TODO: Auto-generated Javadoc
 /**
  * CLASS ID3Learning
@@ -22,23 +38,26 @@ import ml.model.DecisionTree;
  * This class commands all the recursive functions that are needed to work with a tree. 
  * <p> 
  *  CONSTANTS:
- *  static String NAME_FILE: Has to be manually changed for the program to read another name file.
- *  static String DATA_FILE: Has to be manually changed for the program to read another data file.
- *  static String OUTPUT_FILE: Has to be manually changed for the program to write to another file.
+ *  static String NAME_FILE: Name file read by main without arguments. ID3CommandLine takes the files as arguments instead.
+ *  static String DATA_FILE: Data file read by main without arguments.
+ *  static String OUTPUT_FILE: File written by main without arguments.
  *  <p>
  *  ATTRIBUTES:
  *  List<CategoricalType> attributeHeaderList: List of attributes.
  *  CategoricalType classHeader: Output variable or class
- *  List<int[]> data: Data as a list of instances, each one as an array of number representing attributes, the final position on each array is the class or value of output variable
+ *  Dataset data: Training data as a columnar dataset, one column per attribute, the final column is the class or value of output variable
+ *  Dataset validationData: Validation data, with the same layout
  *  DecisionTree resultTree: Stores decision tree
  *  <p>
  *  FUNCTIONS:
- *  public static void main(String[] args): Main.
+ *  public static void main(String[] args): Main. With arguments, it runs ID3CommandLine.
  *  <p>
  *  CORE FUNCTIONS:
- *  private int loadData(String , String ): Loads data from files. Its input are the names of a name file and data file, respectively. Returns 1 always.
+ *  private int loadData(String , String ): Loads data from files. Its input are the names of a name file and data file, respectively. Returns 1, or 0 if the data file could not be read (what was read is kept, but not cached).
  *  private int learnTreeWithID3(): Learns tree ith ID3. Returns 1 always.
- *  private int treeToXML(): Prints tree to XML file: output.xml. Returns 1 always. 
+ *  private int treeToXML(): Prints tree to XML file: output.xml. Returns 1, or 0 if the file could not be written. 
+ *  public int saveModel(String ): Saves the tree to a binary model file. Returns 1, or 0 if it could not be written.
+ *  public int loadModel(String ): Loads the tree from a binary model file. Returns 1, or 0 if it could not be read.
  *  <p>
  *  ADDITIONAL USEFUL FUNCTIONS: Functions that are left in the code, for they could aid in debugging.
  *  private void printHeaders(): Prints the headers or the names of each possible value of attributes and classes
@@ -66,7 +85,7 @@ public class ID3Learning {
 	private CategoricalType classHeader; //Output variable or class
 	
 	/** The data. */
-	private List<int[]> data;// Data as a list of instances, each one as an array of number representing attributes, the final position on each array is the class or value of output variable
+	private Dataset data;// Training data as a columnar dataset, one column per attribute, the final column is the class or value of output variable
 	
 	/** The result tree. */
 	private DecisionTree resultTree; //Stores the decision tree
@@ -74,11 +93,42 @@ public class ID3Learning {
 	/**Extra copy of the result tree, supporting the pruning functionality...*/
 	private DecisionTree copyTree; //Stores a decision tree so as to support the pruning functionality
 	
+	/** The copied tree. */
+	private DecisionTree copiedTree; //Result tree from which the copy tree was made.
+	
+	/** The pruning trajectory. */
+	private PruningTrajectory pruningTrajectory; //Recorded pruning of the copy tree, null until needed.
+	
 	/** The validation data. */
-	private List<int[]> validationData;
+	private Dataset validationData;
 	
 	/** The percentage. */
 	private double percentage=0.7; //Percentage for dividing data between training and validation.
+	
+	/** The seed. */
+	private long seed; //Seed for shuffling the data before dividing it, used if seeded is true.
+	
+	/** The seeded flag. */
+	private boolean seeded=false; //If false, the data is shuffled differently in each load.
+	
+	/** The parallelism. */
+	private int parallelism=1; //Number of threads used for learning the tree. 1 means sequential learning.
+	
+	/** The parallel threshold. */
+	private int parallelThreshold=4096; //Minimum number of instances in a node for building its subtrees in parallel.
+	
+	/** The gain block size. */
+	private int gainBlockSize=65536; //In parallel learning, nodes with more instances count them for the information gains by blocks of this size, in parallel.
+	
+	/** The bitmap induction flag. */
+	private boolean bitmapInduction=false; //If true, the tree is learned with the bitmap-based engine, instead of scanning the rows.
+	
+	/** The dataset cache flag. */
+	private boolean datasetCache=true; //If true, parsed data is cached in a binary file next to the data file, and loaded from it while the files do not change.
+
+	/** The metrics. */
+	private static final ID3Metrics metrics=ID3Metrics.getInstance(); //Registered when the class is loaded, out of the time measured.
+	
 	/////FUNCTIONS
 	
 	//////////CORE FUNCTIONS
@@ -87,15 +137,73 @@ public class ID3Learning {
 	 *
 	 * @param namesFile the names file
 	 * @param dataFile the data file
-	 * @return 1
+	 * @return 1, or 0 if the data file could not be read entirely
+	 * @throws IllegalArgumentException if a line of the data file has empty, missing or extra values, or unknown categories
 	 */
 	public int loadData(String namesFile, String dataFile){//Loads data from files into corresponding data structures.
+		long start=System.nanoTime();
+		DatasetLoadEvent event=new DatasetLoadEvent();
+		event.begin();
+		Dataset data2=null; //All instances, before dividing them between training and validation
+		if (datasetCache){
+			data2=DatasetCache.load(namesFile, dataFile); //Memory-mapped binary copy, valid only if the files did not change since it was written
+		}
+		boolean fromCache=data2!=null;
+		int result=1;
+		if (data2==null){
+			data2=parseNamesFile(namesFile);
+			if (parseDataFile(dataFile, data2)==0){
+				result=0; //The rows read before the failure are kept, as they are, but never cached
+			}
+			else if (datasetCache && data2.getNumRows()>0){
+				try {
+					DatasetCache.save(namesFile, dataFile, data2);
+				}
+				catch (IOException e) {
+					e.printStackTrace(); //The data was loaded, only the cache is missing
+				}
+			}
+		}
+		attributeHeaderList=data2.getAttributeHeaderList();
+		classHeader=data2.getClassHeader();
+		
+		/*We shuffle a permutation of the row indexes, and split it between training and validation*/
+		int order[]=new int[data2.getNumRows()];
+		for (int i=0; i<order.length; i++){
+			order[i]=i;
+		}
+		Random random=seeded?new Random(seed):new Random();
+		for (int i=order.length-1; i>0; i--){
+			int j=random.nextInt(i+1);
+			int aux=order[i];
+			order[i]=order[j];
+			order[j]=aux;
+		}
+		int trainingSize=(int)Math.floor(percentage*(data2.getNumRows()));
+		data=data2.select(order, 0, trainingSize);
+		validationData=data2.select(order, trainingSize, order.length);
+		long nanos=System.nanoTime()-start;
+		metrics.recordLoadData(data2.getNumRows(), fromCache, nanos);
+		if (event.shouldCommit()){
+			event.dataFile=dataFile;
+			event.bytes=new File(dataFile).length();
+			event.rows=data2.getNumRows();
+			event.fromCache=fromCache;
+			event.commit();
+		}
+		return result;
+	}
+	
+	/**
+	 * Function that parses the names file, in C4.5 format.
+	 *
+	 * @param namesFile the names file
+	 * @return an empty dataset, with the headers of the names file
+	 */
+	private Dataset parseNamesFile(String namesFile){
 		BufferedReader reader=null;  
 		classHeader= new CategoricalType();
 		attributeHeaderList=new ArrayList<CategoricalType>();
-		data=new ArrayList<int[]>();
-		validationData= new ArrayList<int[]>();
-		List<int[]> data2=new ArrayList<int[]>();
 		
 		/*First we read the names file*/
 		try {
@@ -147,49 +255,28 @@ public class ID3Learning {
 			  e.printStackTrace();
 			}
 		}
-		
-		/*Now we read the data file*/
+		return new Dataset(attributeHeaderList, classHeader, 1024);
+	}
+	
+	/**
+	 * Function that parses the data file, in C4.5 format, adding its instances to a dataset.
+	 *
+	 * @param dataFile the data file
+	 * @param data2 the dataset
+	 * @return 1, or 0 if the file could not be read entirely
+	 */
+	private int parseDataFile(String dataFile, Dataset data2){
 		try {
-			reader = new BufferedReader(new FileReader(dataFile));
-			String line = null;
-			while ((line = reader.readLine()) !=null){
-				int auxArray[] = new int [attributeHeaderList.size()+1];
-				String[] splited = line.split(",");
-				int i=0;
-				for (String part : splited) {
-					if (i<attributeHeaderList.size()){
-						part=part.replaceAll("\\s","");
-						auxArray[i]=attributeHeaderList.get(i).getNumRepresentationOfCategory(part);
-					}
-					else {
-						part=part.replaceAll("\\s","");
-						auxArray[i]=classHeader.getNumRepresentationOfCategory(part);
-					}
-					i++;
-				}
-				data2.add(auxArray);
-			}
+			long start=System.nanoTime();
+			long bytes=C45DataParser.parse(dataFile, data2); //Memory-mapped and tokenized directly into the dataset
+			long nanos=System.nanoTime()-start;
+			metrics.recordParse(bytes, nanos);
+			return 1;
 		}
 		catch (IOException e) {
 			e.printStackTrace();
-		} finally {
-			try {
-				reader.close();
-			} catch (IOException e) {
-			  e.printStackTrace();
-			}
+			return 0;
 		}
-		
-		Collections.shuffle(data2);
-		Collections.shuffle(data2);
-		Collections.shuffle(data2);
-		for (int i=0; i<(int)Math.floor(percentage*(data2.size())); i++){
-			data.add(data2.get(i));
-		}
-		for (int i=(int)Math.floor(percentage*(data2.size())); i<data2.size(); i++){
-			validationData.add(data2.get(i));
-		}
-		return 1;
 	}
 	
 	/**
@@ -198,91 +285,157 @@ public class ID3Learning {
 	 * @return the int
 	 */
 	public int learnTreeWithID3(){ //Learns tree using ID3
+		long start=System.nanoTime();
+		LongAdder gainEvaluations=new LongAdder();
+		int result=branchResultTree(gainEvaluations);
+		long nanos=System.nanoTime()-start;
+		metrics.recordTrain(resultTree.getNumNodes(), gainEvaluations.sum(), resultTree.getMaximumLevel(), nanos);
+		return result;
+	}
+	
+	/**
+	 * Function that builds the result tree, with the engine and parallelism set.
+	 *
+	 * @param gainEvaluations the counter to which the information gains evaluated by the engine are added
+	 * @return the int
+	 */
+	private int branchResultTree(LongAdder gainEvaluations){
 		resultTree=new DecisionTree();
 		List<Integer> usedAttr= new ArrayList<Integer>();
-		return resultTree.branchWithID3(classHeader, attributeHeaderList, data, -1, -1, 0, usedAttr, 0, -1); 
+		if (bitmapInduction){
+			BitmapInduction engine=new BitmapInduction(data);
+			int result=engine.branchWithID3(resultTree, 0, -1);
+			gainEvaluations.add(engine.getGainEvaluations().sum());
+			return result;
+		}
+		if (parallelism<=1){
+			InductionContext context=new InductionContext(data);
+			int result=resultTree.branchWithID3(context, 0, data.getNumRows(), -1, -1, 0, usedAttr, 0, -1); 
+			gainEvaluations.add(context.getGainEvaluations().sum());
+			return result;
+		}
+		ForkJoinPool pool=new ForkJoinPool(parallelism);
+		try{
+			InductionContext context=new InductionContext(data, pool, parallelThreshold, gainBlockSize);
+			int result=resultTree.branchWithID3(context, 0, data.getNumRows(), -1, -1, 0, usedAttr, 0, -1);
+			gainEvaluations.add(context.getGainEvaluations().sum());
+			return result;
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Sets the number of threads used for learning the tree. With 1 (the default) the tree is learned sequentially.
+	 * The learned tree, including the ids of its nodes, is the same for any parallelism.
+	 *
+	 * @param newParallelism the new parallelism
+	 */
+	public void setParallelism(int newParallelism){
+		parallelism=newParallelism;
+	}
+	
+	/**
+	 * Sets the minimum number of instances in a node for building its subtrees in parallel. Below it, work stays sequential.
+	 *
+	 * @param newParallelThreshold the new parallel threshold
+	 */
+	public void setParallelThreshold(int newParallelThreshold){
+		parallelThreshold=newParallelThreshold;
+	}
+	
+	/**
+	 * Sets the block size for evaluating information gains in parallel. When learning with a parallelism above 1,
+	 * nodes with more instances than this are counted by blocks of this size in parallel, and the partial counts are merged,
+	 * so the selected attributes are the same as in sequential learning.
+	 *
+	 * @param newGainBlockSize the new gain block size
+	 */
+	public void setGainBlockSize(int newGainBlockSize){
+		gainBlockSize=newGainBlockSize;
+	}
+	
+	/**
+	 * Sets if the tree is learned with the bitmap-based engine, which counts instances as popcounts of ANDs of
+	 * precomputed bitmaps, instead of scanning the rows. It suits datasets with many instances and few values per attribute.
+	 * The learned tree is the same with both engines. The bitmap engine is sequential.
+	 *
+	 * @param newBitmapInduction true, for using the bitmap-based engine
+	 */
+	public void setBitmapInduction(boolean newBitmapInduction){
+		bitmapInduction=newBitmapInduction;
+	}
+	
+	/**
+	 * Sets whether parsed data is cached in a binary file (the data file name plus DatasetCache.CACHE_EXTENSION), which later loads
+	 * memory-map instead of parsing the text again. The cache is rewritten when the size or modification time of the files changes.
+	 *
+	 * @param newDatasetCache the new dataset cache flag
+	 */
+	public void setDatasetCache(boolean newDatasetCache){
+		datasetCache=newDatasetCache;
+	}
+	
+	/**
+	 * Sets the percentage (from 0 to 1) of the data used for training, in later loads. The rest is the validation data.
+	 *
+	 * @param newPercentage the new percentage
+	 */
+	public void setPercentage(double newPercentage){
+		percentage=newPercentage;
+	}
+	
+	/**
+	 * Sets the seed for shuffling the data before dividing it between training and validation, in later loads,
+	 * so that the same files are always divided the same way.
+	 *
+	 * @param newSeed the new seed
+	 */
+	public void setSeed(long newSeed){
+		seed=newSeed;
+		seeded=true;
 	}
 	
 	/**
 	 * Function in charge of commanding the reduced error pruning of the tree.
+	 * The nodes to collapse are found by a ReducedErrorPruning engine, with a single pass of the validation data through the tree.
 	 *
 	 * @return the int
 	 */
 	public int reducedErrorPruneTree(){ //Learns tree using ID3
-		DecisionTree prunedTree= resultTree.getCopy();
-		DecisionTree atNodeCandidate= resultTree.getCopy();
-		double currentAccuracy = this.getAccuracyOverValidationData();
-		boolean accuracyImproved=true;
-		int maxLevel=resultTree.getMaximumLevel();
-		while (accuracyImproved){//While the accuracy improves...
-			accuracyImproved=false;
-			int currentLevel=maxLevel;
-			while(currentLevel>=0){  
-				/*Candidates are generated by deleting one non-leaf node at a time, by each level*/
-				List<Integer> nodes= prunedTree.getIdsOfNonLeafNodesInLevel(currentLevel); //Here we get a list of all non-leaf nodes in a level.
-				for (int i=0; i<nodes.size(); i++){//We iterate through that list.
-					DecisionTree auxTree= prunedTree.getCopy(); //We make a copy of the current tree
-					auxTree.deleteNode(nodes.get(i));//We delete the node
-					double newAccuracy=getAccuracyOverValidationData(auxTree); //We get the new accuracy
-					if (newAccuracy>currentAccuracy){
-						atNodeCandidate=auxTree.getCopy(); //We store the selected tree
-					}
-				}
-				currentLevel--;
-			}
-			currentAccuracy=getAccuracyOverValidationData(atNodeCandidate);
-			if (currentAccuracy>getAccuracyOverValidationData(prunedTree)){
-				accuracyImproved=true;
-				prunedTree=atNodeCandidate.getCopy();
-			}
-		}
-		if (getAccuracyOverValidationData(prunedTree)>this.getAccuracyOverValidationData()){
-			resultTree=prunedTree.getCopy();			
+		PruningTrajectory trajectory=prune(resultTree);
+		if (trajectory.getNumSteps()>0){ //Each collapse improves the accuracy, so the pruned tree is better than the original
+			resultTree=trajectory.getTreeAtStep(trajectory.getNumSteps());
 		}
 		return 1;
 	}
 	
 	/**
 	 * Function in charge of commanding the reduced error pruning of the tree up until
-	 * the step passed as parameter
+	 * the step passed as parameter. The pruning of the copy tree is recorded the first time,
+	 * and later calls (for any step, forwards or backwards) replay its trajectory.
 	 *
 	 * @return the int
 	 */
 	public int reducedErrorPruneTree(int step){ //Learns tree using ID3
-		int steps=0;
-		DecisionTree prunedTree= copyTree.getCopy();
-		DecisionTree atNodeCandidate= copyTree.getCopy();
-		double currentAccuracy = this.getAccuracyOverValidationData(copyTree);
-		boolean accuracyImproved=true;
-		int maxLevel=copyTree.getMaximumLevel();
-		while (accuracyImproved){//While the accuracy improves...
-			accuracyImproved=false;
-			int currentLevel=maxLevel;
-			while(currentLevel>=0){  
-				/*Candidates are generated by deleting one non-leaf node at a time, by each level*/
-				List<Integer> nodes= prunedTree.getIdsOfNonLeafNodesInLevel(currentLevel); //Here we get a list of all non-leaf nodes in a level.
-				for (int i=0; i<nodes.size(); i++){//We iterate through that list.
-					DecisionTree auxTree= prunedTree.getCopy(); //We make a copy of the current tree
-					auxTree.deleteNode(nodes.get(i));//We delete the node
-					double newAccuracy=getAccuracyOverValidationData(auxTree); //We get the new accuracy
-					if (newAccuracy>currentAccuracy){
-						atNodeCandidate=auxTree.getCopy(); //We store the selected tree
-					}
-				}
-				currentLevel--;
-			}
-			currentAccuracy=getAccuracyOverValidationData(atNodeCandidate);
-			if (currentAccuracy>getAccuracyOverValidationData(prunedTree)){
-				accuracyImproved=true;
-				prunedTree=atNodeCandidate.getCopy();
-				steps++; //Accuracy improved by deleting one additional node, independent of the level...
-				if (steps==step){
-					resultTree=prunedTree.getCopy();
-					return 1;
-				}
-			}
+		PruningTrajectory trajectory=getPruningTrajectory();
+		if (step<1 || step>trajectory.getNumSteps()){
+			return 0;
 		}
-		return 0;
+		resultTree=trajectory.getTreeAtStep(step);
+		return 1;
+	}
+	
+	/**
+	 * Function that returns the trajectory of the reduced error pruning of the copy tree, recording it if needed.
+	 *
+	 * @return the pruning trajectory
+	 */
+	public PruningTrajectory getPruningTrajectory(){
+		if (pruningTrajectory==null){
+			pruningTrajectory=prune(copyTree);
+		}
+		return pruningTrajectory;
 	}
 	
 	/**
@@ -291,6 +444,8 @@ public class ID3Learning {
 	 * */
 	public void initializeCopyTree(){
 		copyTree=resultTree.getCopy();
+		copiedTree=resultTree;
+		pruningTrajectory=null; //Recorded again, for the new copy, when needed
 	}
 	/**
 	 * Function that returns the maximum number of steps (or node-deletions)
@@ -299,39 +454,25 @@ public class ID3Learning {
 	 * @return the int
 	 */
 	public int maxStepsInReducedErrorPruneTree(){ //Learns tree using ID3
-		int steps=0;
-		DecisionTree prunedTree= resultTree.getCopy();
-		DecisionTree atNodeCandidate= resultTree.getCopy();
-		double currentAccuracy = this.getAccuracyOverValidationData();
-		boolean accuracyImproved=true;
-		int maxLevel=resultTree.getMaximumLevel();
-		while (accuracyImproved){//While the accuracy improves...
-			accuracyImproved=false;
-			int currentLevel=maxLevel;
-			while(currentLevel>=0){  
-				/*Candidates are generated by deleting one non-leaf node at a time, by each level*/
-				List<Integer> nodes= prunedTree.getIdsOfNonLeafNodesInLevel(currentLevel); //Here we get a list of all non-leaf nodes in a level.
-				for (int i=0; i<nodes.size(); i++){//We iterate through that list.
-					DecisionTree auxTree= prunedTree.getCopy(); //We make a copy of the current tree
-					auxTree.deleteNode(nodes.get(i));//We delete the node
-					double newAccuracy=getAccuracyOverValidationData(auxTree); //We get the new accuracy
-					if (newAccuracy>currentAccuracy){
-						atNodeCandidate=auxTree.getCopy(); //We store the selected tree
-					}
-				}
-				currentLevel--;
-			}
-			currentAccuracy=getAccuracyOverValidationData(atNodeCandidate);
-			if (currentAccuracy>getAccuracyOverValidationData(prunedTree)){
-				accuracyImproved=true;
-				prunedTree=atNodeCandidate.getCopy();
-				steps++; //Accuracy improved by deleting one additional node, independent of the level...
-			}
+		if (copyTree!=null && copiedTree==resultTree){ //The copy tree is the current tree, and its trajectory can be used
+			return getPruningTrajectory().getNumSteps();
 		}
-		if (getAccuracyOverValidationData(prunedTree)<=this.getAccuracyOverValidationData()){
-			steps=0;			
-		}
-		return steps;
+		return prune(resultTree).getNumSteps();
+	}
+	
+	/**
+	 * Function that records the reduced error pruning of a tree, with the validation data.
+	 *
+	 * @param tree the tree
+	 * @return the pruning trajectory
+	 */
+	private PruningTrajectory prune(DecisionTree tree){
+		long start=System.nanoTime();
+		ReducedErrorPruning pruning=new ReducedErrorPruning(tree, validationData);
+		PruningTrajectory trajectory=pruning.prune();
+		long nanos=System.nanoTime()-start;
+		metrics.recordPrune(pruning.getNumCandidatesEvaluated(), pruning.getNumRounds(), nanos);
+		return trajectory;
 	}
 	
 	/**
@@ -341,31 +482,24 @@ public class ID3Learning {
 	 * @return the accuracy over validation data
 	 */
 	public double getAccuracyOverValidationData(){ //Gets accuracy
-		int numberOfExamples=validationData.size();
-		int numberOfCorrectlyClassified=0;
-		for (int i=0; i<validationData.size(); i++){
-			if (resultTree.classify(validationData.get(i))==validationData.get(i)[validationData.get(i).length-1]){
-				numberOfCorrectlyClassified++;
-			}
-		}
-		if (numberOfExamples>0){
-			return (double)numberOfCorrectlyClassified/numberOfExamples;
-		}
-		return 0.0;
+		return getAccuracyOverValidationData(resultTree);
 	}
 	
 	/**
 	 * Function in charge of calculating the accuracy of a
 	 * decision tree passed as parameter over the validation data.
+	 * The tree is first compiled into its flattened version, which classifies all the instances in one batch.
 	 *
 	 * @param tree the tree
 	 * @return the accuracy over validation data
 	 */
 	public double getAccuracyOverValidationData(DecisionTree tree){ //Gets accuracy
-		int numberOfExamples=validationData.size();
+		int numberOfExamples=validationData.getNumRows();
+		int predictions[]=new int[numberOfExamples];
+		CompiledTree.compile(tree).classifyBatch(validationData, 0, numberOfExamples, predictions);
 		int numberOfCorrectlyClassified=0;
-		for (int i=0; i<validationData.size(); i++){
-			if (tree.classify(validationData.get(i))==validationData.get(i)[validationData.get(i).length-1]){
+		for (int i=0; i<numberOfExamples; i++){
+			if (predictions[i]==validationData.getClassValue(i)){
 				numberOfCorrectlyClassified++;
 			}
 		}
@@ -375,26 +509,137 @@ public class ID3Learning {
 		return 0.0;
 	}
 	
+	/**
+	 * Function that returns a classifier for the learned tree, generated as a class of nested switch statements,
+	 * or the compiled (array-encoded) tree if the tree is too large or no compiler is available.
+	 *
+	 * @return the classifier
+	 */
+	public Classifier generateClassifier(){
+		return ClassifierGenerator.generate(resultTree);
+	}
+	
+	/**
+	 * Function that classifies, with the learned tree, all the rows of a dataset (for example, one loaded for offline scoring
+	 * with the same headers). With a parallelism above 1, big datasets are classified by several threads.
+	 *
+	 * @param dataset the dataset
+	 * @return the predictions, the class assigned to row i in position i
+	 */
+	public int[] classifyBatch(Dataset dataset){
+		long start=System.nanoTime();
+		int predictions[]=new int[dataset.getNumRows()];
+		CompiledTree compiledTree=CompiledTree.compile(resultTree);
+		if (parallelism<=1){
+			compiledTree.classifyBatch(dataset, 0, dataset.getNumRows(), predictions);
+		}
+		else{
+			ForkJoinPool pool=new ForkJoinPool(parallelism);
+			try{
+				compiledTree.classifyBatch(dataset, 0, dataset.getNumRows(), predictions, pool);
+			} finally {
+				pool.shutdown();
+			}
+		}
+		long nanos=System.nanoTime()-start;
+		metrics.recordClassify(dataset.getNumRows(), nanos);
+		return predictions;
+	}
+	
+	/**
+	 * Gets the number of nodes of the tree.
+	 *
+	 * @return the number of nodes
+	 */
+	public int getNumNodes(){
+		return resultTree.getNumNodes();
+	}
+	
+	/**
+	 * Function that returns views of the nodes of the tree, in the order of its XML representation,
+	 * for drawing it without printing it to a file.
+	 *
+	 * @return the node views
+	 */
+	public List<TreeNodeView> getNodeViews(){
+		return resultTree.getNodeViews();
+	}
+	
 	/**
 	 * Function in charge of commanding the printing of the tree to 
 	 * an xml file.
 	 *
 	 * @param file the file
-	 * @return the int
+	 * @return 1, or 0 if the file could not be written
 	 */
 	public int treeToXML(String file){ //Prints tree to XML.
-		PrintWriter writer;
+		XmlExportEvent event=new XmlExportEvent();
+		event.begin();
+		Writer writer=null;
+		int result=1;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1<<16);
+			new XmlTreeWriter(writer).write(resultTree); //Single walk of the tree, streaming to the file
+		} catch (IOException e) {
+			e.printStackTrace();
+			result=0;
+		} finally {
+			if (writer!=null){
+				try {
+					writer.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+					result=0;
+				}
+			}
+		}
+		if (event.shouldCommit()){
+			event.file=file;
+			event.nodes=resultTree.getNumNodes();
+			event.commit();
+		}
+		return result;
+	}
+	
+	/**
+	 * Function that saves the tree to a binary model file, which can be loaded again without retraining.
+	 *
+	 * @param file the file
+	 * @return 1, or 0 if the file could not be written
+	 */
+	public int saveModel(String file){
 		try {
-			writer = new PrintWriter(file, "UTF-8");
-			resultTree.printToXML(writer);
-			writer.close();
-		} catch (FileNotFoundException | UnsupportedEncodingException e) {
-			// TODO Auto-generated catch block
+			ModelFile.save(resultTree, file);
+		} catch (IOException e) {
 			e.printStackTrace();
+			return 0;
 		}
 		return 1;
 	}
 	
+	/**
+	 * Function that loads the tree from a binary model file, written by saveModel, instead of learning it.
+	 * The tree can then be classified with, printed and drawn; pruning it needs validation data from loadData.
+	 *
+	 * @param file the file
+	 * @return 1, or 0 if the file could not be read
+	 */
+	public int loadModel(String file){
+		try {
+			ModelFile model=ModelFile.load(file);
+			resultTree=model.getTree();
+			attributeHeaderList=model.getAttributeHeaderList();
+			classHeader=model.getClassHeader();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return 0;
+		}
+		copyTree=null;
+		copiedTree=null;
+		pruningTrajectory=null;
+		return 1;
+	}
+	
 	//////////ADDITIONAL USEFUL FUNCTIONS
 	/*Prints the headers or the names of each possible value of attributes and classes*/
 	/**
@@ -414,13 +659,13 @@ public class ID3Learning {
 	 * Prints the data.
 	 */
 	public void printData(){ 
-		for (int i=0; i<data.size(); i++){
+		for (int i=0; i<data.getNumRows(); i++){
 			String outputString="";
 			for (int j=0; j<attributeHeaderList.size(); j++){
-				outputString+=attributeHeaderList.get(j).getCategory(data.get(i)[j]);
+				outputString+=attributeHeaderList.get(j).getCategory(data.getValue(i, j));
 				outputString+=",";
 			}
-			outputString+=classHeader.getCategory(data.get(i)[attributeHeaderList.size()]);
+			outputString+=classHeader.getCategory(data.getClassValue(i));
 			System.out.println(i+": "+outputString);
 		}
 	}
@@ -432,6 +677,10 @@ public class ID3Learning {
 	 * @param args the arguments
 	 */
 	public static void main(String[] args) {
+		if (args.length>0){ //Headless command line, see ID3CommandLine
+			ID3CommandLine.main(args);
+			return;
+		}
 		ID3Learning app=new ID3Learning ();
 		app.loadData(NAME_FILE,DATA_FILE);
 		app.learnTreeWithID3(); //Internally stores the decision tree
@@ -0,0 +1,441 @@
+package ml.control;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import ml.model.Classifier;
+
+/**
+ * CLASS ID3Metrics
+ * <p>
+ * Counters and timers of the learning pipeline, exposed as an MBean named OBJECT_NAME on the platform MBean server,
+ * where it is registered the first time the metrics are used.
+ * <p>
+ * ID3Learning records loadData, learnTreeWithID3, the reduced error pruning and classifyBatch. A classify call is one call of
+ * classifyBatch, one request of the ScoringServer, or one call of a classifier wrapped with meter; the classify methods of
+ * DecisionTree, CompiledTree and the generated classifiers take a few nanoseconds and record nothing themselves, since reading
+ * the clock twice would cost more than the call. Other scoring code can record its own classify calls with recordClassify. Counters are LongAdders, which threads update without contending for a single
+ * value, so recording costs a few nanoseconds and the metrics are always on. Training metrics are recorded once per tree:
+ * the information gains are counted by the engine as selectAttribute evaluates them, once per node, and the nodes and depth are
+ * counted on the learned tree.
+ *
+ */
+public class ID3Metrics implements ID3MetricsMBean {
+
+	/** The name of the MBean. */
+	public static final String OBJECT_NAME="ml.control:type=ID3Metrics";
+
+	/** The number of buckets of the latency histogram, one per power of 2 of nanoseconds. */
+	private static final int HISTOGRAM_BUCKETS=64;
+
+	/** Singleton instance of type ID3Metrics. */
+	private static final ID3Metrics instance=register(new ID3Metrics());
+
+	/** The load data count. */
+	private final LongAdder loadDataCount=new LongAdder();
+
+	/** The cache load count. */
+	private final LongAdder cacheLoadCount=new LongAdder();
+
+	/** The rows loaded. */
+	private final LongAdder rowsLoaded=new LongAdder();
+
+	/** The bytes parsed. */
+	private final LongAdder bytesParsed=new LongAdder();
+
+	/** The parse nanos. */
+	private final LongAdder parseNanos=new LongAdder();
+
+	/** The load data nanos. */
+	private final LongAdder loadDataNanos=new LongAdder();
+
+	/** The train count. */
+	private final LongAdder trainCount=new LongAdder();
+
+	/** The nodes created. */
+	private final LongAdder nodesCreated=new LongAdder();
+
+	/** The gain evaluations. */
+	private final LongAdder gainEvaluations=new LongAdder();
+
+	/** The max depth reached. */
+	private final LongAccumulator maxDepthReached=new LongAccumulator(new LongBinaryOperator(){
+		@Override
+		public long applyAsLong(long left, long right){
+			return Math.max(left, right);
+		}
+	}, 0);
+
+	/** The train nanos. */
+	private final LongAdder trainNanos=new LongAdder();
+
+	/** The prune count. */
+	private final LongAdder pruneCount=new LongAdder();
+
+	/** The pruning candidates evaluated. */
+	private final LongAdder pruningCandidatesEvaluated=new LongAdder();
+
+	/** The pruning rounds. */
+	private final LongAdder pruningRounds=new LongAdder();
+
+	/** The prune nanos. */
+	private final LongAdder pruneNanos=new LongAdder();
+
+	/** The classify count. */
+	private final LongAdder classifyCount=new LongAdder();
+
+	/** The tuples classified. */
+	private final LongAdder tuplesClassified=new LongAdder();
+
+	/** The classify nanos. */
+	private final LongAdder classifyNanos=new LongAdder();
+
+	/** The classify latency histogram. */
+	private final LongAdder[] classifyLatency=new LongAdder[HISTOGRAM_BUCKETS];
+
+	/**Private constructor function, for singleton use. */
+	private ID3Metrics(){
+		for (int i=0; i<HISTOGRAM_BUCKETS; i++){
+			classifyLatency[i]=new LongAdder();
+		}
+	}
+
+	/**
+	 * getInstance function, for singleton use.
+	 *
+	 * @return single instance of ID3Metrics
+	 */
+	public static ID3Metrics getInstance(){
+		return instance;
+	}
+
+	/**
+	 * Function that registers the metrics on the platform MBean server. Without one (or if the name is taken), the metrics are
+	 * still recorded, only not exposed.
+	 *
+	 * @param metrics the metrics
+	 * @return the metrics
+	 */
+	private static ID3Metrics register(ID3Metrics metrics){
+		try {
+			MBeanServer server=ManagementFactory.getPlatformMBeanServer();
+			ObjectName name=new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)){
+				server.registerMBean(metrics, name);
+			}
+		} catch (JMException | SecurityException e) {
+			e.printStackTrace();
+		}
+		return metrics;
+	}
+
+	/**
+	 * Function that records a call to loadData.
+	 *
+	 * @param rows the rows loaded
+	 * @param fromCache true, if the data was loaded from its binary cache
+	 * @param nanos the time spent, in nanoseconds
+	 */
+	public void recordLoadData(long rows, boolean fromCache, long nanos){
+		loadDataCount.increment();
+		if (fromCache){
+			cacheLoadCount.increment();
+		}
+		rowsLoaded.add(rows);
+		loadDataNanos.add(nanos);
+	}
+
+	/**
+	 * Function that records the parsing of a data file.
+	 *
+	 * @param bytes the bytes parsed
+	 * @param nanos the time spent, in nanoseconds
+	 */
+	public void recordParse(long bytes, long nanos){
+		bytesParsed.add(bytes);
+		parseNanos.add(nanos);
+	}
+
+	/**
+	 * Function that records the learning of a tree.
+	 *
+	 * @param nodes the nodes of the tree
+	 * @param gains the information gains evaluated
+	 * @param depth the depth of the tree
+	 * @param nanos the time spent, in nanoseconds
+	 */
+	public void recordTrain(long nodes, long gains, int depth, long nanos){
+		trainCount.increment();
+		nodesCreated.add(nodes);
+		gainEvaluations.add(gains);
+		maxDepthReached.accumulate(depth);
+		trainNanos.add(nanos);
+	}
+
+	/**
+	 * Function that records a reduced error pruning.
+	 *
+	 * @param candidates the candidates evaluated
+	 * @param rounds the rounds
+	 * @param nanos the time spent, in nanoseconds
+	 */
+	public void recordPrune(long candidates, long rounds, long nanos){
+		pruneCount.increment();
+		pruningCandidatesEvaluated.add(candidates);
+		pruningRounds.add(rounds);
+		pruneNanos.add(nanos);
+	}
+
+	/**
+	 * Function that records a classify call, of one tuple or of a batch.
+	 *
+	 * @param tuples the tuples classified
+	 * @param nanos the time spent, in nanoseconds
+	 */
+	public void recordClassify(long tuples, long nanos){
+		classifyCount.increment();
+		tuplesClassified.add(tuples);
+		classifyNanos.add(nanos);
+		classifyLatency[HISTOGRAM_BUCKETS-Long.numberOfLeadingZeros(Math.max(nanos, 0))].increment(); //Bucket of the highest bit set
+	}
+
+	/**
+	 * Function that wraps a classifier so that each call of classify is recorded as a classify call of one tuple,
+	 * for scoring code that classifies tuples one at a time.
+	 *
+	 * @param classifier the classifier
+	 * @return the metered classifier
+	 */
+	public Classifier meter(final Classifier classifier){
+		return new Classifier(){
+			@Override
+			public int classify(int[] tuple){
+				long start=System.nanoTime();
+				int output=classifier.classify(tuple);
+				recordClassify(1, System.nanoTime()-start);
+				return output;
+			}
+		};
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getLoadDataCount()
+	 */
+	@Override
+	public long getLoadDataCount(){
+		return loadDataCount.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getCacheLoadCount()
+	 */
+	@Override
+	public long getCacheLoadCount(){
+		return cacheLoadCount.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getRowsLoaded()
+	 */
+	@Override
+	public long getRowsLoaded(){
+		return rowsLoaded.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getBytesParsed()
+	 */
+	@Override
+	public long getBytesParsed(){
+		return bytesParsed.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getParseTimeMillis()
+	 */
+	@Override
+	public long getParseTimeMillis(){
+		return parseNanos.sum()/1000000;
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getLoadDataTimeMillis()
+	 */
+	@Override
+	public long getLoadDataTimeMillis(){
+		return loadDataNanos.sum()/1000000;
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getTrainCount()
+	 */
+	@Override
+	public long getTrainCount(){
+		return trainCount.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getNodesCreated()
+	 */
+	@Override
+	public long getNodesCreated(){
+		return nodesCreated.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getGainEvaluations()
+	 */
+	@Override
+	public long getGainEvaluations(){
+		return gainEvaluations.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getMaxDepthReached()
+	 */
+	@Override
+	public long getMaxDepthReached(){
+		return maxDepthReached.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getTrainTimeMillis()
+	 */
+	@Override
+	public long getTrainTimeMillis(){
+		return trainNanos.sum()/1000000;
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getPruneCount()
+	 */
+	@Override
+	public long getPruneCount(){
+		return pruneCount.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getPruningCandidatesEvaluated()
+	 */
+	@Override
+	public long getPruningCandidatesEvaluated(){
+		return pruningCandidatesEvaluated.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getPruningRounds()
+	 */
+	@Override
+	public long getPruningRounds(){
+		return pruningRounds.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getPruneTimeMillis()
+	 */
+	@Override
+	public long getPruneTimeMillis(){
+		return pruneNanos.sum()/1000000;
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getClassifyCount()
+	 */
+	@Override
+	public long getClassifyCount(){
+		return classifyCount.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getTuplesClassified()
+	 */
+	@Override
+	public long getTuplesClassified(){
+		return tuplesClassified.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getClassifyTimeMillis()
+	 */
+	@Override
+	public long getClassifyTimeMillis(){
+		return classifyNanos.sum()/1000000;
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getClassifyLatencyHistogram()
+	 */
+	@Override
+	public long[] getClassifyLatencyHistogram(){
+		long histogram[]=new long[HISTOGRAM_BUCKETS];
+		for (int i=0; i<HISTOGRAM_BUCKETS; i++){
+			histogram[i]=classifyLatency[i].sum();
+		}
+		return histogram;
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getClassifyLatencyP50Micros()
+	 */
+	@Override
+	public double getClassifyLatencyP50Micros(){
+		return getClassifyLatencyPercentileMicros(0.5);
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#getClassifyLatencyP99Micros()
+	 */
+	@Override
+	public double getClassifyLatencyP99Micros(){
+		return getClassifyLatencyPercentileMicros(0.99);
+	}
+
+	/**
+	 * Function that estimates a percentile of the latency of classify calls, as the upper bound of the bucket of the histogram where it falls.
+	 *
+	 * @param fraction the fraction of calls, from 0 to 1
+	 * @return the latency, in microseconds, or 0 if there were no calls
+	 */
+	public double getClassifyLatencyPercentileMicros(double fraction){
+		long histogram[]=getClassifyLatencyHistogram();
+		long total=0;
+		for (int i=0; i<HISTOGRAM_BUCKETS; i++){
+			total+=histogram[i];
+		}
+		if (total==0){
+			return 0.0;
+		}
+		long target=(long)Math.ceil(fraction*total);
+		long seen=0;
+		for (int i=0; i<HISTOGRAM_BUCKETS; i++){
+			seen+=histogram[i];
+			if (seen>=target && histogram[i]>0){
+				return Math.scalb(1.0, i)/1000.0; //Bucket i holds latencies under 2^i nanoseconds
+			}
+		}
+		return Math.scalb(1.0, HISTOGRAM_BUCKETS)/1000.0;
+	}
+
+	/* (non-Javadoc)
+	 * @see ml.control.ID3MetricsMBean#reset()
+	 */
+	@Override
+	public void reset(){
+		LongAdder adders[]={loadDataCount, cacheLoadCount, rowsLoaded, bytesParsed, parseNanos, loadDataNanos, trainCount, nodesCreated,
+				gainEvaluations, trainNanos, pruneCount, pruningCandidatesEvaluated, pruningRounds, pruneNanos, classifyCount,
+				tuplesClassified, classifyNanos};
+		for (int i=0; i<adders.length; i++){
+			adders[i].reset();
+		}
+		for (int i=0; i<HISTOGRAM_BUCKETS; i++){
+			classifyLatency[i].reset();
+		}
+		maxDepthReached.reset();
+	}
+}
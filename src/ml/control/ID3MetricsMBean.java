@@ -0,0 +1,166 @@
+package ml.control;
+
+/**
+ * INTERFACE ID3MetricsMBean
+ * <p>
+ * Management interface of ID3Metrics: the counters and timers of loading, learning, pruning and classifying, as JMX attributes.
+ * Times are in milliseconds, except for the classify latencies, in microseconds.
+ * A classify call is one classifyBatch, one ScoringServer request or one call of a metered classifier (see ID3Metrics.meter);
+ * a batch or a request counts as a single call, whatever its number of tuples.
+ *
+ */
+public interface ID3MetricsMBean {
+
+	/**
+	 * Gets the number of calls to loadData.
+	 *
+	 * @return the count
+	 */
+	long getLoadDataCount();
+
+	/**
+	 * Gets the number of loads served from the binary cache of the data.
+	 *
+	 * @return the count
+	 */
+	long getCacheLoadCount();
+
+	/**
+	 * Gets the number of rows loaded.
+	 *
+	 * @return the rows
+	 */
+	long getRowsLoaded();
+
+	/**
+	 * Gets the number of bytes of data files parsed.
+	 *
+	 * @return the bytes
+	 */
+	long getBytesParsed();
+
+	/**
+	 * Gets the time spent parsing data files.
+	 *
+	 * @return the time, in milliseconds
+	 */
+	long getParseTimeMillis();
+
+	/**
+	 * Gets the time spent in loadData.
+	 *
+	 * @return the time, in milliseconds
+	 */
+	long getLoadDataTimeMillis();
+
+	/**
+	 * Gets the number of trees learned.
+	 *
+	 * @return the count
+	 */
+	long getTrainCount();
+
+	/**
+	 * Gets the number of nodes created by branchWithID3.
+	 *
+	 * @return the nodes
+	 */
+	long getNodesCreated();
+
+	/**
+	 * Gets the number of information gains evaluated.
+	 *
+	 * @return the gain evaluations
+	 */
+	long getGainEvaluations();
+
+	/**
+	 * Gets the maximum depth reached by a learned tree.
+	 *
+	 * @return the depth
+	 */
+	long getMaxDepthReached();
+
+	/**
+	 * Gets the time spent learning trees.
+	 *
+	 * @return the time, in milliseconds
+	 */
+	long getTrainTimeMillis();
+
+	/**
+	 * Gets the number of reduced error prunings.
+	 *
+	 * @return the count
+	 */
+	long getPruneCount();
+
+	/**
+	 * Gets the number of pruning candidates evaluated.
+	 *
+	 * @return the candidates
+	 */
+	long getPruningCandidatesEvaluated();
+
+	/**
+	 * Gets the number of pruning rounds.
+	 *
+	 * @return the rounds
+	 */
+	long getPruningRounds();
+
+	/**
+	 * Gets the time spent pruning.
+	 *
+	 * @return the time, in milliseconds
+	 */
+	long getPruneTimeMillis();
+
+	/**
+	 * Gets the number of classify calls.
+	 *
+	 * @return the count
+	 */
+	long getClassifyCount();
+
+	/**
+	 * Gets the number of tuples classified.
+	 *
+	 * @return the tuples
+	 */
+	long getTuplesClassified();
+
+	/**
+	 * Gets the time spent classifying.
+	 *
+	 * @return the time, in milliseconds
+	 */
+	long getClassifyTimeMillis();
+
+	/**
+	 * Gets the histogram of the latencies of classify calls: position i counts the calls which took from 2^(i-1) to 2^i-1 nanoseconds
+	 * (position 0, those under 1 nanosecond).
+	 *
+	 * @return the histogram
+	 */
+	long[] getClassifyLatencyHistogram();
+
+	/**
+	 * Gets the median latency of classify calls, estimated from the histogram as the upper bound of its bucket.
+	 *
+	 * @return the latency, in microseconds
+	 */
+	double getClassifyLatencyP50Micros();
+
+	/**
+	 * Gets the 99th percentile of the latency of classify calls, estimated from the histogram as the upper bound of its bucket.
+	 *
+	 * @return the latency, in microseconds
+	 */
+	double getClassifyLatencyP99Micros();
+
+	/**
+	 * Resets all the counters and timers.
+	 */
+	void reset();
+}
@@ -2,9 +2,9 @@ package ml.control;
 
 import java.io.File;
 import java.io.FilenameFilter;
-import java.io.IOException;
-import org.jsoup.select.Elements;
-import org.jsoup.Jsoup;
+import java.util.List;
+
+import ml.model.TreeNodeView;
 
 // TODO: Auto-generated Javadoc
 /** ID3Singleton class
@@ -22,9 +22,6 @@ public class ID3Singleton {
 	/**Default data folder. By default car folder*/
 	private static String DEFAULT_DATA_FOLDER="data/car/";
 	
-	/** The output file. */
-	private static String OUTPUT_FILE="tmp/output.xml";
-	
 	/** The data_folder. */
 	private static String data_folder=DEFAULT_DATA_FOLDER;
 
@@ -100,15 +97,14 @@ public class ID3Singleton {
 	}
 	
 	/**
-	 * Function that returns an object of type Elements, from the jsoup library,
-	 * encapsulating the information of a tree, according to its XML representation.
-	 * This was designed so as to ease the drawing of the tree.
+	 * Function that returns views of the nodes of the tree, root first and in the order of its XML representation,
+	 * with the information of each node already typed. This was designed so as to ease the drawing of the tree,
+	 * which does not need the XML to be written and parsed.
 	 *
 	 * @param pruned the pruned
 	 * @return the tree for drawing
-	 * @throws IOException Signals that an I/O exception has occurred.
 	 */
-	public Elements getTreeForDrawing(boolean pruned) throws IOException{
+	public List<TreeNodeView> getTreeForDrawing(boolean pruned){
 		if (!pruned){
 			File dir = new File(data_folder);
 			File[] hits_for_names = dir.listFiles(new FilenameFilter()
@@ -130,21 +126,24 @@ public class ID3Singleton {
 			app.loadData(hits_for_names[0].toString(),hits_for_data[0].toString()); 
 			app.learnTreeWithID3();
 		}
-		app.treeToXML(OUTPUT_FILE);
-		File treeFile = new File (OUTPUT_FILE);
-		org.jsoup.nodes.Document xmlDoc = Jsoup.parse(treeFile, "UTF-8");
-		Elements nodes= xmlDoc.select("node");
-		Elements root = xmlDoc.select("tree");
-		root.addAll(nodes);
-		return root;
+		return app.getNodeViews();
 	} 
 	
+	/**
+	 * Function that exports the current tree to an XML file, when requested.
+	 *
+	 * @param file the file
+	 * @return 1, or 0 if the file could not be written
+	 */
+	public int exportTreeToXML(String file){
+		return app.treeToXML(file);
+	}
+	
 	/**Function that commands the pruning of the tree.
 	 * 
 	 * */
 	public void pruneTree(){
 		app.reducedErrorPruneTree();
-		app.treeToXML(OUTPUT_FILE);
 	}
 	
 	/**Function that commands the pruning of the tree up until a step.
@@ -152,7 +151,6 @@ public class ID3Singleton {
 	 * */
 	public void pruneTree(int step){
 		app.reducedErrorPruneTree(step);
-		app.treeToXML(OUTPUT_FILE);
 	}
 
 	/*Function to get the maximum number of pruning steps*/
@@ -0,0 +1,97 @@
+package ml.control;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CLASS LatencyHistogram
+ * <p>
+ * Histogram of latencies, in nanoseconds, with SUB_BUCKETS buckets per power of 2, so that a percentile is estimated within
+ * 1/(2*SUB_BUCKETS) of the latencies recorded (about 3%), instead of within a factor of 2 as with one bucket per power of 2.
+ * Latencies under SUB_BUCKETS nanoseconds have a bucket each. Buckets are LongAdders, so threads record without contending.
+ *
+ */
+public class LatencyHistogram {
+
+	/** The number of buckets per power of 2. */
+	private static final int SUB_BUCKETS=16;
+
+	/** The bits of the position inside a power of 2. */
+	private static final int SUB_BITS=4;
+
+	/** The buckets. */
+	private final LongAdder[] buckets=new LongAdder[(64-SUB_BITS)*SUB_BUCKETS]; //Enough for any positive long.
+
+	/**
+	 * Instantiates a new, empty, latency histogram.
+	 */
+	public LatencyHistogram(){
+		for (int i=0; i<buckets.length; i++){
+			buckets[i]=new LongAdder();
+		}
+	}
+
+	/**
+	 * Function that records a latency.
+	 *
+	 * @param nanos the latency, in nanoseconds
+	 */
+	public void record(long nanos){
+		buckets[bucket(Math.max(nanos, 0))].increment();
+	}
+
+	/**
+	 * Function that returns the bucket of a latency.
+	 *
+	 * @param nanos the latency, not negative
+	 * @return the bucket
+	 */
+	private static int bucket(long nanos){
+		if (nanos<SUB_BUCKETS){
+			return (int)nanos;
+		}
+		int exponent=63-Long.numberOfLeadingZeros(nanos); //Highest bit set, at least SUB_BITS
+		int sub=(int)(nanos>>>(exponent-SUB_BITS))&(SUB_BUCKETS-1); //The SUB_BITS bits after it
+		return (exponent-SUB_BITS+1)*SUB_BUCKETS+sub;
+	}
+
+	/**
+	 * Function that returns the middle of the latencies of a bucket.
+	 *
+	 * @param bucket the bucket
+	 * @return the latency, in nanoseconds
+	 */
+	private static double middle(int bucket){
+		if (bucket<SUB_BUCKETS){
+			return bucket;
+		}
+		int shift=bucket/SUB_BUCKETS-1; //Width of the bucket is 2^shift
+		long lower=(long)(SUB_BUCKETS+bucket%SUB_BUCKETS)<<shift;
+		return lower+Math.scalb(1.0, shift)/2;
+	}
+
+	/**
+	 * Function that estimates a percentile of the latencies, as the middle of the bucket where it falls.
+	 *
+	 * @param fraction the fraction of latencies, from 0 to 1
+	 * @return the latency, in microseconds, or 0 if none was recorded
+	 */
+	public double getPercentileMicros(double fraction){
+		long histogram[]=new long[buckets.length];
+		long total=0;
+		for (int i=0; i<buckets.length; i++){
+			histogram[i]=buckets[i].sum();
+			total+=histogram[i];
+		}
+		if (total==0){
+			return 0.0;
+		}
+		long target=Math.max((long)Math.ceil(fraction*total), 1);
+		long seen=0;
+		int i=0;
+		while (i<buckets.length-1 && seen+histogram[i]<target){
+			seen+=histogram[i];
+			i++;
+		}
+		return middle(i)/1000.0;
+	}
+}
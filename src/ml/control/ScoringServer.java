@@ -0,0 +1,455 @@
+package ml.control;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import ml.model.CategoricalType;
+import ml.model.Classifier;
+import ml.model.ModelFile;
+
+/**
+ * CLASS ScoringServer
+ * <p>
+ * HTTP server classifying tuples with a trained tree, loaded at startup from a model file (see ModelFile), on the server of
+ * the JDK (com.sun.net.httpserver), so no servlet container is needed. Each request runs on a virtual thread of its own when
+ * the JDK has them (Java 21 or later, looked up by reflection), and otherwise on a thread of a cached pool.
+ * <p>
+ * REQUESTS:
+ *  POST /classify: the body has one tuple per line, with the values of the attributes separated by commas, as in a data file.
+ *  A line may also have the class as a last value, which is ignored, so lines of a data file can be sent as they are. Whitespace
+ *  and empty lines are ignored. The response has the class of each tuple, one per line and in the same order.
+ *  Values are the categories of the attributes, mapped through their CategoricalType, and the classes are answered as categories too.
+ *  With POST /classify?encoded, values are the numbers of the categories instead, and the classes are answered as numbers.
+ *  An unknown category, or a line with a wrong number of values, makes the whole request fail with status 400.
+ *  GET /stats: throughput and latency of the requests answered since the server started.
+ * <p>
+ * Tuples are read directly from the bytes of the request, without creating Strings. The classifier reads the mapped model
+ * file, and the headers are only read, so all requests share them. Each request is also recorded in ID3Metrics, as a call to
+ * classify. The latency percentiles of the stats come from a LatencyHistogram of the requests answered by this server only,
+ * as its mean latency does.
+ * <p>
+ * USAGE: java ml.control.ScoringServer model [port]
+ *
+ */
+public class ScoringServer {
+
+	/** The default port. */
+	public static final int DEFAULT_PORT=8080;
+
+	/** Maximum size of the body of a request, in bytes. */
+	private static final int MAX_BODY_BYTES=64<<20;
+
+	/** The content type of the responses. */
+	private static final String CONTENT_TYPE="text/plain; charset=UTF-8";
+
+	/** The metrics. */
+	private static final ID3Metrics metrics=ID3Metrics.getInstance();
+
+	/** The server. */
+	private HttpServer server;
+
+	/** The executor. */
+	private ExecutorService executor;
+
+	/** The virtual threads flag. */
+	private boolean virtualThreads; //True if requests run on virtual threads.
+
+	/** The classifier. */
+	private Classifier classifier;
+
+	/** The attribute headers. */
+	private CategoricalType[] attributeHeaders;
+
+	/** The class names. */
+	private byte[][] classNames; //Categories of the class, encoded as UTF-8.
+
+	/** The num nodes. */
+	private int numNodes;
+
+	/** The start nanos. */
+	private long startNanos;
+
+	/** The requests. */
+	private final LongAdder requests=new LongAdder(); //Requests to /classify answered, with or without errors.
+
+	/** The failed requests. */
+	private final LongAdder failedRequests=new LongAdder();
+
+	/** The tuples classified. */
+	private final LongAdder tuplesClassified=new LongAdder();
+
+	/** The request nanos. */
+	private final LongAdder requestNanos=new LongAdder();
+
+	/** The request latencies. */
+	private final LatencyHistogram requestLatencies=new LatencyHistogram();
+
+	/**
+	 * Instantiates a new scoring server, bound to a port but not started.
+	 *
+	 * @param model the model
+	 * @param port the port, or 0 for any free port
+	 * @throws IOException Signals that the port could not be bound.
+	 */
+	public ScoringServer(ModelFile model, int port) throws IOException{
+		classifier=model.getClassifier();
+		List<CategoricalType> attributeHeaderList=model.getAttributeHeaderList();
+		attributeHeaders=attributeHeaderList.toArray(new CategoricalType[attributeHeaderList.size()]);
+		CategoricalType classHeader=model.getClassHeader();
+		classNames=new byte[classHeader.getNumCategories()][];
+		for (int i=0; i<classNames.length; i++){
+			classNames[i]=classHeader.getCategory(i).getBytes(StandardCharsets.UTF_8);
+		}
+		numNodes=model.getNumNodes();
+		server=HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/classify", new HttpHandler(){
+			@Override
+			public void handle(HttpExchange exchange) throws IOException{
+				handleClassify(exchange);
+			}
+		});
+		server.createContext("/stats", new HttpHandler(){
+			@Override
+			public void handle(HttpExchange exchange) throws IOException{
+				handleStats(exchange);
+			}
+		});
+	}
+
+	/**
+	 * Function that starts serving requests, each on a new virtual thread if the JDK has them, or else on a cached thread pool.
+	 */
+	public void start(){
+		try {
+			Method factory=Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			executor=(ExecutorService)factory.invoke(null);
+			virtualThreads=true;
+		} catch (ReflectiveOperationException e) { //Before Java 21, or with virtual threads as a disabled preview
+			executor=Executors.newCachedThreadPool();
+		}
+		server.setExecutor(executor);
+		startNanos=System.nanoTime();
+		server.start();
+	}
+
+	/**
+	 * Function that stops the server, waiting for the requests being answered.
+	 *
+	 * @param delay the maximum time to wait, in seconds
+	 */
+	public void stop(int delay){
+		server.stop(delay);
+		if (executor!=null){
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Gets the port the server is bound to.
+	 *
+	 * @return the port
+	 */
+	public int getPort(){
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Function that answers a request to /classify.
+	 *
+	 * @param exchange the exchange
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void handleClassify(HttpExchange exchange) throws IOException{
+		long start=System.nanoTime();
+		try {
+			if (!exchange.getRequestMethod().equals("POST")){
+				exchange.getResponseHeaders().set("Allow", "POST");
+				failedRequests.increment();
+				send(exchange, 405, "Use POST\n".getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			boolean encoded=exchange.getRequestURI().getQuery()!=null && exchange.getRequestURI().getQuery().equals("encoded");
+			ByteArrayOutputStream response=new ByteArrayOutputStream();
+			int numTuples;
+			try {
+				numTuples=classify(readBody(exchange.getRequestBody()), encoded, response);
+			} catch (IllegalArgumentException e) {
+				failedRequests.increment();
+				send(exchange, 400, (e.getMessage()+"\n").getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			send(exchange, 200, response.toByteArray());
+			long nanos=System.nanoTime()-start;
+			tuplesClassified.add(numTuples);
+			requestNanos.add(nanos);
+			requestLatencies.record(nanos);
+			metrics.recordClassify(numTuples, nanos);
+		} finally {
+			requests.increment();
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Function that reads the body of a request.
+	 *
+	 * @param input the input
+	 * @return the body
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static byte[] readBody(InputStream input) throws IOException{
+		byte body[]=new byte[8192];
+		int length=0;
+		int read;
+		while ((read=input.read(body, length, body.length-length))>=0){
+			length+=read;
+			if (length==body.length){
+				if (body.length>=MAX_BODY_BYTES){
+					throw new IllegalArgumentException("The request is larger than "+MAX_BODY_BYTES+" bytes");
+				}
+				body=Arrays.copyOf(body, body.length*2);
+			}
+		}
+		return Arrays.copyOf(body, length);
+	}
+
+	/**
+	 * Function that classifies the tuples of the body of a request, one per line, writing their classes to the response.
+	 *
+	 * @param body the body
+	 * @param encoded true, if the values are numbers of categories
+	 * @param response the response
+	 * @return the number of tuples classified
+	 */
+	int classify(byte[] body, boolean encoded, ByteArrayOutputStream response){
+		int numAttributes=attributeHeaders.length;
+		int tuple[]=new int[numAttributes];
+		byte value[]=new byte[64]; //Bytes of a field, without whitespace
+		int numTuples=0;
+		int line=1;
+		int lineStart=0;
+		while (lineStart<body.length){
+			int lineEnd=lineStart;
+			while (lineEnd<body.length && body[lineEnd]!='\n'){
+				lineEnd++;
+			}
+			int numValues=0;
+			int fieldStart=lineStart;
+			boolean blank=true;
+			for (int i=lineStart; i<=lineEnd; i++){
+				if (i==lineEnd || body[i]==','){
+					if (numValues<numAttributes){
+						int length=compact(body, fieldStart, i, value);
+						if (length>value.length){
+							value=new byte[length];
+							compact(body, fieldStart, i, value);
+						}
+						tuple[numValues]=encoded?parseNumber(value, length, numValues, line):lookUp(value, length, numValues, line);
+					}
+					numValues++;
+					fieldStart=i+1;
+				}
+				else if (!isWhitespace(body[i])){
+					blank=false;
+				}
+			}
+			if (!blank){
+				if (numValues!=numAttributes && numValues!=numAttributes+1){ //The class may follow the attributes, and is ignored
+					throw new IllegalArgumentException("Line "+line+" has "+numValues+" values, "+numAttributes+" were expected");
+				}
+				int classValue=classifier.classify(tuple);
+				if (encoded){
+					byte number[]=Integer.toString(classValue).getBytes(StandardCharsets.US_ASCII);
+					response.write(number, 0, number.length);
+				}
+				else{
+					response.write(classNames[classValue], 0, classNames[classValue].length);
+				}
+				response.write('\n');
+				numTuples++;
+			}
+			line++;
+			lineStart=lineEnd+1;
+		}
+		return numTuples;
+	}
+
+	/**
+	 * Function that copies the bytes of a field which are not whitespace, as C45DataParser ignores them.
+	 *
+	 * @param body the body
+	 * @param start the start of the field
+	 * @param end the end of the field (exclusive)
+	 * @param value the array receiving the bytes
+	 * @return the number of bytes which are not whitespace, which are only copied if they fit in value
+	 */
+	private static int compact(byte[] body, int start, int end, byte[] value){
+		int length=0;
+		for (int i=start; i<end; i++){
+			if (!isWhitespace(body[i])){
+				if (length<value.length){
+					value[length]=body[i];
+				}
+				length++;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Checks if a byte is whitespace.
+	 *
+	 * @param b the byte
+	 * @return true, if it is whitespace
+	 */
+	private static boolean isWhitespace(byte b){
+		return b==' ' || b=='\t' || b=='\r' || b=='\f' || b==0x0B;
+	}
+
+	/**
+	 * Function that maps a category of an attribute to its number.
+	 *
+	 * @param value the bytes of the category
+	 * @param length the length
+	 * @param attribute the attribute
+	 * @param line the line
+	 * @return the number of the category
+	 */
+	private int lookUp(byte[] value, int length, int attribute, int line){
+		int result=attributeHeaders[attribute].getNumRepresentationOfCategory(value, 0, length);
+		if (result<0){
+			throw new IllegalArgumentException("Line "+line+": unknown value "+new String(value, 0, length, StandardCharsets.UTF_8)
+					+" of attribute "+attributeHeaders[attribute].getName());
+		}
+		return result;
+	}
+
+	/**
+	 * Function that parses the number of a category of an attribute.
+	 *
+	 * @param value the bytes of the number
+	 * @param length the length
+	 * @param attribute the attribute
+	 * @param line the line
+	 * @return the number of the category
+	 */
+	private int parseNumber(byte[] value, int length, int attribute, int line){
+		int result=0;
+		int numCategories=attributeHeaders[attribute].getNumCategories();
+		for (int i=0; i<length; i++){
+			if (value[i]<'0' || value[i]>'9' || result>=numCategories){
+				result=numCategories; //Not a number of a category
+				break;
+			}
+			result=result*10+(value[i]-'0');
+		}
+		if (length==0 || result>=numCategories){
+			throw new IllegalArgumentException("Line "+line+": value "+new String(value, 0, length, StandardCharsets.UTF_8)
+					+" of attribute "+attributeHeaders[attribute].getName()+" is not from 0 to "+(numCategories-1));
+		}
+		return result;
+	}
+
+	/**
+	 * Function that answers a request to /stats.
+	 *
+	 * @param exchange the exchange
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void handleStats(HttpExchange exchange) throws IOException{
+		try {
+			send(exchange, 200, getStats().getBytes(StandardCharsets.UTF_8));
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Gets the stats: the requests and tuples answered since the server started, their throughput, and their latency.
+	 *
+	 * @return the stats, one per line
+	 */
+	public String getStats(){
+		double seconds=(System.nanoTime()-startNanos)/1e9;
+		long numRequests=requests.sum();
+		long numFailed=failedRequests.sum();
+		long numTuples=tuplesClassified.sum();
+		long numAnswered=numRequests-numFailed;
+		StringBuilder stats=new StringBuilder();
+		stats.append("Model nodes: ").append(numNodes).append('\n');
+		stats.append("Threads: ").append(virtualThreads?"virtual":"pool").append('\n');
+		stats.append(String.format(Locale.ROOT, "Uptime seconds: %.3f%n", seconds));
+		stats.append("Requests: ").append(numRequests).append('\n');
+		stats.append("Failed requests: ").append(numFailed).append('\n');
+		stats.append("Tuples classified: ").append(numTuples).append('\n');
+		stats.append(String.format(Locale.ROOT, "Requests per second: %.1f%n", seconds>0?numRequests/seconds:0));
+		stats.append(String.format(Locale.ROOT, "Tuples per second: %.1f%n", seconds>0?numTuples/seconds:0));
+		stats.append(String.format(Locale.ROOT, "Mean latency micros: %.1f%n", numAnswered>0?requestNanos.sum()/1e3/numAnswered:0));
+		stats.append(String.format(Locale.ROOT, "Latency p50 micros: %.1f%n", requestLatencies.getPercentileMicros(0.5)));
+		stats.append(String.format(Locale.ROOT, "Latency p99 micros: %.1f%n", requestLatencies.getPercentileMicros(0.99)));
+		return stats.toString();
+	}
+
+	/**
+	 * Function that sends a response.
+	 *
+	 * @param exchange the exchange
+	 * @param status the status
+	 * @param body the body
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void send(HttpExchange exchange, int status, byte[] body) throws IOException{
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+		exchange.sendResponseHeaders(status, body.length==0?-1:body.length);
+		if (body.length>0){
+			OutputStream output=exchange.getResponseBody();
+			output.write(body);
+			output.close();
+		}
+	}
+
+	/**
+	 * Main function.
+	 *
+	 * @param args model [port]
+	 */
+	public static void main(String[] args){
+		if (args.length<1 || args.length>2){
+			System.err.println("Usage: java ml.control.ScoringServer model [port]");
+			System.exit(2);
+		}
+		ModelFile model;
+		ScoringServer scoringServer;
+		try {
+			int port=args.length>1?Integer.parseInt(args[1]):DEFAULT_PORT;
+			model=ModelFile.load(args[0]);
+			scoringServer=new ScoringServer(model, port);
+		} catch (NumberFormatException e) {
+			System.err.println("Not a port: "+args[1]);
+			System.exit(2);
+			return;
+		} catch (IOException e) {
+			System.err.println("Cannot start: "+e.getMessage());
+			System.exit(1);
+			return;
+		}
+		scoringServer.start();
+		System.out.println("Serving a tree of "+model.getNumNodes()+" nodes on port "+scoringServer.getPort()
+				+(scoringServer.virtualThreads?", with virtual threads":""));
+	}
+}
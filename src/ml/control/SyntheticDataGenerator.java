@@ -0,0 +1,319 @@
+package ml.control;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import ml.model.Classifier;
+
+/**
+ * CLASS SyntheticDataGenerator
+ * <p>
+ * Generator of datasets in C4.5 format (a names file and a data file, as read by ID3Learning.loadData) whose classes
+ * are given by a known, planted, decision tree.
+ * <p>
+ * The attributes are named a0, a1, ..., with the categories v0, v1, ..., and the classes c0, c1, .... The planted tree tests
+ * a different random attribute in each node of a path, has one child per category, and goes down to treeDepth levels
+ * (some branches end before, at random, and the tree stops growing at MAX_TREE_NODES nodes). Its leaves assign random classes.
+ * Each row has uniformly random values, and the class of the planted tree, except for a fraction (the noise) of the rows,
+ * which get one of the other classes instead.
+ * <p>
+ * Rows are generated and written one at a time, as bytes, through a buffer of BUFFER_SIZE bytes, so files of any size can be written
+ * with constant memory. The same parameters and seed always give the same files.
+ * <p>
+ * USAGE: java ml.control.SyntheticDataGenerator output rows attributes cardinality classes [depth] [noise] [seed]
+ * writes output.c45-names and output.data.
+ *
+ */
+public class SyntheticDataGenerator {
+
+	/** Maximum number of nodes of the planted tree. */
+	private static final int MAX_TREE_NODES=1<<20;
+
+	/** Probability of a node below the root being a leaf before reaching the depth of the tree. */
+	private static final double EARLY_LEAF_PROBABILITY=0.2;
+
+	/** Size of the output buffer. */
+	private static final int BUFFER_SIZE=1<<20;
+
+	/** The num attributes. */
+	private int numAttributes;
+
+	/** The cardinality. */
+	private int cardinality; //Number of categories of every attribute.
+
+	/** The num classes. */
+	private int numClasses;
+
+	/** The noise. */
+	private double noise; //Fraction of rows whose class is changed.
+
+	/** The seed. */
+	private long seed;
+
+	/** The attribute. */
+	private int[] attribute; //Planted tree: attribute tested in each node, -1 for leaves.
+
+	/** The child base. */
+	private int[] childBase; //Planted tree: number of the child of each node for category 0, the rest follow.
+
+	/** The output. */
+	private int[] output; //Planted tree: class of each leaf.
+
+	/**
+	 * Instantiates a new generator, planting its tree.
+	 *
+	 * @param numAttributes the number of attributes
+	 * @param cardinality the number of categories of each attribute
+	 * @param numClasses the number of classes
+	 * @param treeDepth the depth of the planted tree, at most the number of attributes
+	 * @param noise the fraction of rows whose class is not the one of the planted tree, from 0 to 1
+	 * @param seed the seed
+	 */
+	public SyntheticDataGenerator(int numAttributes, int cardinality, int numClasses, int treeDepth, double noise, long seed){
+		if (numAttributes<1 || cardinality<1 || numClasses<1){
+			throw new IllegalArgumentException("There must be at least one attribute, one category and one class");
+		}
+		if (treeDepth<0 || treeDepth>numAttributes){
+			throw new IllegalArgumentException("The depth of the tree must be from 0 to the number of attributes");
+		}
+		if (noise<0 || noise>1){
+			throw new IllegalArgumentException("The noise must be from 0 to 1");
+		}
+		this.numAttributes=numAttributes;
+		this.cardinality=cardinality;
+		this.numClasses=numClasses;
+		this.noise=noise;
+		this.seed=seed;
+		plantTree(treeDepth, new SplittableRandom(seed));
+	}
+
+	/**
+	 * Function that plants the tree, breadth first.
+	 *
+	 * @param treeDepth the tree depth
+	 * @param random the random
+	 */
+	private void plantTree(int treeDepth, SplittableRandom random){
+		int capacity=16;
+		attribute=new int[capacity];
+		childBase=new int[capacity];
+		output=new int[capacity];
+		int depth[]=new int[capacity];
+		int pathAttributes[][]=new int[capacity][]; //Attributes tested on the path to each node, for the nodes still to be expanded
+		pathAttributes[0]=new int[0];
+		int numNodes=1;
+		for (int n=0; n<numNodes; n++){
+			boolean leaf=depth[n]==treeDepth || numNodes+cardinality>MAX_TREE_NODES
+					|| (depth[n]>0 && random.nextDouble()<EARLY_LEAF_PROBABILITY);
+			if (leaf){
+				attribute[n]=-1;
+				output[n]=random.nextInt(numClasses);
+				pathAttributes[n]=null;
+				continue;
+			}
+			int used[]=pathAttributes[n];
+			int chosen=random.nextInt(numAttributes-used.length); //Among the attributes not used in the path
+			for (int i=0; i<used.length; i++){ //Used attributes are sorted, so skipping them in order maps chosen to an unused attribute
+				if (used[i]<=chosen){
+					chosen++;
+				}
+			}
+			int childPath[]=new int[used.length+1];
+			int k=0;
+			for (int i=0; i<used.length; i++){
+				if (used[i]<chosen){
+					childPath[k++]=used[i];
+				}
+			}
+			childPath[k]=chosen;
+			for (int i=k; i<used.length; i++){
+				childPath[i+1]=used[i];
+			}
+			if (numNodes+cardinality>capacity){
+				capacity=Math.max(capacity*2, numNodes+cardinality);
+				attribute=Arrays.copyOf(attribute, capacity);
+				childBase=Arrays.copyOf(childBase, capacity);
+				output=Arrays.copyOf(output, capacity);
+				depth=Arrays.copyOf(depth, capacity);
+				pathAttributes=Arrays.copyOf(pathAttributes, capacity);
+			}
+			attribute[n]=chosen;
+			childBase[n]=numNodes;
+			for (int v=0; v<cardinality; v++){
+				depth[numNodes]=depth[n]+1;
+				pathAttributes[numNodes]=childPath;
+				numNodes++;
+			}
+			pathAttributes[n]=null;
+		}
+		attribute=Arrays.copyOf(attribute, numNodes);
+		childBase=Arrays.copyOf(childBase, numNodes);
+		output=Arrays.copyOf(output, numNodes);
+	}
+
+	/**
+	 * Gets the number of nodes of the planted tree.
+	 *
+	 * @return the number of nodes
+	 */
+	public int getNumTreeNodes(){
+		return attribute.length;
+	}
+
+	/**
+	 * Function that returns the planted tree, as a classifier of tuples of attribute values.
+	 *
+	 * @return the ground truth
+	 */
+	public Classifier getGroundTruth(){
+		return new Classifier(){
+			@Override
+			public int classify(int[] tuple){
+				return plantedClass(tuple);
+			}
+		};
+	}
+
+	/**
+	 * Function that returns the class given to a tuple by the planted tree.
+	 *
+	 * @param tuple the attribute values
+	 * @return the class
+	 */
+	private int plantedClass(int[] tuple){
+		int node=0;
+		while (attribute[node]>=0){
+			node=childBase[node]+tuple[attribute[node]];
+		}
+		return output[node];
+	}
+
+	/**
+	 * Function that writes the names file and the data file.
+	 *
+	 * @param namesFile the names file
+	 * @param dataFile the data file
+	 * @param numRows the number of rows
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void write(String namesFile, String dataFile, long numRows) throws IOException{
+		writeNames(namesFile);
+		writeData(dataFile, numRows);
+	}
+
+	/**
+	 * Function that writes the names file.
+	 *
+	 * @param namesFile the names file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeNames(String namesFile) throws IOException{
+		Writer writer=new OutputStreamWriter(new FileOutputStream(namesFile), StandardCharsets.UTF_8);
+		try {
+			writer.write("| names file (C4.5 format) for a synthetic domain\n\n| class values\n\n");
+			for (int c=0; c<numClasses; c++){
+				writer.write((c>0?",":"")+"c"+c);
+			}
+			writer.write("\n\n| attributes\n\n");
+			for (int a=0; a<numAttributes; a++){
+				writer.write("a"+a+":");
+				for (int v=0; v<cardinality; v++){
+					writer.write((v>0?",":"")+"v"+v);
+				}
+				writer.write(".\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Function that writes the data file, generating the rows as they are written.
+	 *
+	 * @param dataFile the data file
+	 * @param numRows the number of rows
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeData(String dataFile, long numRows) throws IOException{
+		byte categories[][]=names("v", cardinality);
+		byte classes[][]=names("c", numClasses);
+		int maxLineLength=numAttributes*(categories[cardinality-1].length+1)+classes[numClasses-1].length+1;
+		byte buffer[]=new byte[Math.max(BUFFER_SIZE, maxLineLength)];
+		int length=0;
+		SplittableRandom random=new SplittableRandom(seed).split(); //Independent of the random numbers of the planted tree
+		int tuple[]=new int[numAttributes];
+		OutputStream stream=new FileOutputStream(dataFile);
+		try {
+			for (long r=0; r<numRows; r++){
+				if (length+maxLineLength>buffer.length){
+					stream.write(buffer, 0, length);
+					length=0;
+				}
+				for (int a=0; a<numAttributes; a++){
+					tuple[a]=random.nextInt(cardinality);
+					byte category[]=categories[tuple[a]];
+					System.arraycopy(category, 0, buffer, length, category.length);
+					length+=category.length;
+					buffer[length++]=',';
+				}
+				int classValue=plantedClass(tuple);
+				if (numClasses>1 && random.nextDouble()<noise){
+					classValue=(classValue+1+random.nextInt(numClasses-1))%numClasses; //Any other class
+				}
+				byte className[]=classes[classValue];
+				System.arraycopy(className, 0, buffer, length, className.length);
+				length+=className.length;
+				buffer[length++]='\n';
+			}
+			stream.write(buffer, 0, length);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Function that returns the names prefix0, prefix1, ..., as bytes.
+	 *
+	 * @param prefix the prefix
+	 * @param count the count
+	 * @return the names
+	 */
+	private static byte[][] names(String prefix, int count){
+		byte result[][]=new byte[count][];
+		for (int i=0; i<count; i++){
+			result[i]=(prefix+i).getBytes(StandardCharsets.US_ASCII);
+		}
+		return result;
+	}
+
+	/**
+	 * Main function.
+	 *
+	 * @param args output rows attributes cardinality classes [depth] [noise] [seed]
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void main(String[] args) throws IOException{
+		if (args.length<5){
+			System.err.println("Usage: java ml.control.SyntheticDataGenerator output rows attributes cardinality classes [depth] [noise] [seed]");
+			System.exit(1);
+		}
+		long numRows=Long.parseLong(args[1]);
+		int numAttributes=Integer.parseInt(args[2]);
+		int cardinality=Integer.parseInt(args[3]);
+		int numClasses=Integer.parseInt(args[4]);
+		int treeDepth=args.length>5?Integer.parseInt(args[5]):Math.min(numAttributes, 6);
+		double noise=args.length>6?Double.parseDouble(args[6]):0.05;
+		long seed=args.length>7?Long.parseLong(args[7]):42;
+		SyntheticDataGenerator generator=new SyntheticDataGenerator(numAttributes, cardinality, numClasses, treeDepth, noise, seed);
+		long start=System.nanoTime();
+		generator.write(args[0]+".c45-names", args[0]+".data", numRows);
+		System.out.println("Planted tree of "+generator.getNumTreeNodes()+" nodes, "+numRows+" rows written in "
+				+(System.nanoTime()-start)/1000000+" ms");
+	}
+}
@@ -0,0 +1,32 @@
+package ml.control;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * CLASS XmlExportEvent
+ * <p>
+ * Flight Recorder event of a call to ID3Learning.treeToXML. It is disabled by default.
+ *
+ */
+@Name("ml.id3.XmlExport")
+@Label("XML Export")
+@Category("ID3")
+@Description("Export of a tree to an XML file")
+@Enabled(false)
+@StackTrace(false)
+class XmlExportEvent extends Event {
+
+	/** The file. */
+	@Label("File")
+	String file;
+
+	/** The nodes. */
+	@Label("Nodes")
+	int nodes;
+}
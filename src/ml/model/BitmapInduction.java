@@ -0,0 +1,254 @@
+package ml.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/** BitmapInduction class
+ *  <p>
+ *  Alternative engine for building a decision tree with ID3, suited for large datasets with few values per attribute.
+ *  <p>
+ *  For each value of each attribute, and for each class, it precomputes a bitmap over the instances (one bit per row).
+ *  The instances of a node are then the AND of the bitmaps of the values that lead to it, and every count needed for the
+ *  information gains and the class of a leaf is the popcount of an AND of bitmaps. Sets of instances are kept as bitmaps
+ *  (restricted to the range of words where they have bits) while they are dense, and as sorted arrays of row indexes
+ *  when they become sparse.
+ *  <p>
+ *  The tree built is the same as the one built with DecisionTree.branchWithID3 over the same data.
+ *
+ * */
+public class BitmapInduction {
+
+	/** A set is kept as a sorted array when it has less than one instance per this number of rows. */
+	private static final int SPARSE_RATIO=32;
+
+	/** The data. */
+	private Dataset data; //Training data
+
+	/** The value bitmaps. */
+	private long[][][] valueBitmaps; //One bitmap per attribute and value.
+
+	/** The class bitmaps. */
+	private long[][] classBitmaps; //One bitmap per class.
+
+	/** The gain evaluations. */
+	private final LongAdder gainEvaluations=new LongAdder(); //Information gains evaluated while building trees.
+
+	/**
+	 * Instantiates a new bitmap induction engine, precomputing the bitmaps of a dataset.
+	 *
+	 * @param data the data
+	 */
+	public BitmapInduction(Dataset data){
+		this.data=data;
+		int numWords=(data.getNumRows()+63)>>>6;
+		valueBitmaps=new long[data.getNumAttributes()][][];
+		for (int i=0; i<data.getNumAttributes(); i++){
+			valueBitmaps[i]=buildBitmaps(i, numWords);
+		}
+		classBitmaps=buildBitmaps(data.getNumAttributes(), numWords);
+	}
+
+	/**
+	 * Function that builds, for a column of the data, one bitmap per category.
+	 *
+	 * @param column the column
+	 * @param numWords the number of words of each bitmap
+	 * @return the bitmaps
+	 */
+	private long[][] buildBitmaps(int column, int numWords){
+		long bitmaps[][]=new long[data.getHeader(column).getNumCategories()][numWords];
+		for (int r=0; r<data.getNumRows(); r++){
+			bitmaps[data.getValue(r, column)][r>>>6]|=1L<<r;
+		}
+		return bitmaps;
+	}
+
+	/**
+	 * Function in charge of building a tree with ID3 over all the instances of the data, from the given (root) node.
+	 *
+	 * @param root the root node
+	 * @param assignedId the assigned id
+	 * @param assignedParentId the assigned parent id
+	 * @return 1
+	 */
+	public int branchWithID3(DecisionTree root, int assignedId, int assignedParentId){
+		int numWords=(data.getNumRows()+63)>>>6;
+		long allWords[]=new long[numWords];
+		for (int r=0; r<data.getNumRows(); r++){
+			allWords[r>>>6]|=1L<<r;
+		}
+		InstanceSet all=new InstanceSet(allWords, 0);
+		int classCounts[]=new int[classBitmaps.length];
+		for (int j=0; j<classCounts.length; j++){
+			classCounts[j]=all.andCount(classBitmaps[j]);
+		}
+		branch(root, all, classCounts, -1, -1, 0, new ArrayList<Integer>());
+		root.assignIds(assignedId, assignedParentId);
+		return 1;
+	}
+
+	/**
+	 * Gets the counter of the information gains evaluated while building trees.
+	 *
+	 * @return the gain evaluations
+	 */
+	public LongAdder getGainEvaluations(){
+		return gainEvaluations;
+	}
+
+	/**
+	 * Recursive function in charge of branching a node, following the ID3 algorithm.
+	 *
+	 * @param node the node
+	 * @param instances the instances in the node
+	 * @param classCounts the class counts of the instances
+	 * @param incomingAttribute the incoming attribute
+	 * @param incomingValue the incoming value
+	 * @param level the level
+	 * @param usedAttr the used attr
+	 */
+	private void branch(DecisionTree node, InstanceSet instances, int[] classCounts, int incomingAttribute, int incomingValue, int level, List<Integer> usedAttr){
+		if (!node.initializeNode(data, classCounts, incomingAttribute, incomingValue, level, usedAttr)){
+			return; //It is a leaf
+		}
+		NodeSplitEvent event=new NodeSplitEvent();
+		event.begin();
+		boolean candidates[]=node.getCandidates(usedAttr);
+		InstanceSet byClass[]=new InstanceSet[classCounts.length]; //Instances of the node in each class
+		for (int j=0; j<classCounts.length; j++){
+			if (classCounts[j]>0){
+				byClass[j]=instances.and(classBitmaps[j], classCounts[j]);
+			}
+		}
+		ContingencyTables tables=new ContingencyTables(data, candidates);
+		tables.setClassCounts(classCounts);
+		for (int i=0; i<candidates.length; i++){
+			if (candidates[i]){
+				for (int v=0; v<valueBitmaps[i].length; v++){
+					for (int j=0; j<classCounts.length; j++){
+						if (byClass[j]!=null){
+							tables.setCount(i, v, j, byClass[j].andCount(valueBitmaps[i][v])); //Popcount of node AND class AND value
+						}
+					}
+				}
+			}
+		}
+		int attributeUsed=node.selectAttribute(tables, candidates, gainEvaluations);
+		event.commitSplit(node);
+		List<Integer> usedAttr2= new ArrayList<Integer>();
+		usedAttr2.addAll(usedAttr);
+		usedAttr2.add(attributeUsed);
+		int valueCounts[]=tables.getValueCounts(attributeUsed);
+		for (int v=0; v<valueCounts.length; v++){
+			InstanceSet childInstances=instances.and(valueBitmaps[attributeUsed][v], valueCounts[v]);
+			branch(node.getDescendant(v), childInstances, tables.getClassCounts(attributeUsed, v), attributeUsed, v, level+1, usedAttr2);
+		}
+	}
+
+	/** InstanceSet class
+	 *  <p>
+	 *  Set of instances of a node, kept either as a bitmap over a range of words, or as a sorted array of row indexes.
+	 * */
+	private static class InstanceSet {
+
+		/** The words. */
+		private long[] words; //Bitmap, null if the set is sparse.
+
+		/** The first word. */
+		private int firstWord; //Position, in a full bitmap, of the first word kept.
+
+		/** The rows. */
+		private int[] rows; //Sorted row indexes, null if the set is dense.
+
+		/**
+		 * Instantiates a new dense instance set.
+		 *
+		 * @param words the words
+		 * @param firstWord the first word
+		 */
+		InstanceSet(long[] words, int firstWord){
+			this.words=words;
+			this.firstWord=firstWord;
+		}
+
+		/**
+		 * Instantiates a new sparse instance set.
+		 *
+		 * @param rows the rows
+		 */
+		InstanceSet(int[] rows){
+			this.rows=rows;
+		}
+
+		/**
+		 * Function that returns the number of instances in this set which are also in a full bitmap.
+		 *
+		 * @param bitmap the bitmap
+		 * @return the count
+		 */
+		int andCount(long[] bitmap){
+			int count=0;
+			if (words!=null){
+				for (int i=0; i<words.length; i++){
+					count+=Long.bitCount(words[i]&bitmap[firstWord+i]);
+				}
+			}
+			else{
+				for (int i=0; i<rows.length; i++){
+					if ((bitmap[rows[i]>>>6]&(1L<<rows[i]))!=0){
+						count++;
+					}
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Function that returns the set of instances in this set which are also in a full bitmap. The size of the result is known in advance
+		 * (from the counts), and is used to choose its representation.
+		 *
+		 * @param bitmap the bitmap
+		 * @param cardinality the number of instances in the result
+		 * @return the instance set
+		 */
+		InstanceSet and(long[] bitmap, int cardinality){
+			int result[]=null;
+			int numRows=0;
+			if (words!=null){
+				if (cardinality*(long)SPARSE_RATIO>=words.length*64L){ //Stays dense, trimmed to the words with bits
+					int first=0;
+					int last=words.length-1;
+					while (first<=last && (words[first]&bitmap[firstWord+first])==0){
+						first++;
+					}
+					while (last>=first && (words[last]&bitmap[firstWord+last])==0){
+						last--;
+					}
+					long resultWords[]=new long[Math.max(last-first+1, 0)];
+					for (int i=first; i<=last; i++){
+						resultWords[i-first]=words[i]&bitmap[firstWord+i];
+					}
+					return new InstanceSet(resultWords, firstWord+first);
+				}
+				result=new int[cardinality];
+				for (int i=0; i<words.length; i++){
+					long word=words[i]&bitmap[firstWord+i];
+					while (word!=0){
+						result[numRows++]=((firstWord+i)<<6)+Long.numberOfTrailingZeros(word);
+						word&=word-1;
+					}
+				}
+			}
+			else{
+				result=new int[cardinality];
+				for (int i=0; i<rows.length; i++){
+					if ((bitmap[rows[i]>>>6]&(1L<<rows[i]))!=0){
+						result[numRows++]=rows[i];
+					}
+				}
+			}
+			return new InstanceSet(result);
+		}
+	}
+}
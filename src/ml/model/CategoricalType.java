@@ -1,5 +1,6 @@
 package ml.model;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +16,8 @@ import java.util.List;
  *  ATTRIBUTES
  *  String name: Name of the attribute or class
  *  List <String> categories: List with possible values of attributes, stored as strings.
+ *  List <byte[]> encodedCategories: The same values, encoded as UTF-8.
+ *  int[] slots: Open-addressing hash dictionary, mapping values (as strings or bytes) to their numbers in O(1).
  *  boolean used: Extra flag to indicate if this attribute has been used in the building of a tree, by default false.
  *  <p>
  *  FUNCTIONS
@@ -24,6 +27,7 @@ import java.util.List;
  *  public int getNumCategories(): Returns number of categories or possible values of attribute. 
  *  public String getCategory(int ): Maps between a number (or index) and the value of attribute (a string). 
  *  public int getNumRepresentationOfCategory(String ): Maps between the value of attribute (a string) and the number (or index) it represents
+ *  public int getNumRepresentationOfCategory(byte[], int, int ): Same, for a value given as UTF-8 bytes, without creating a String
  *  public void use(): Marks the attribute as used in learning a decision tree
  *  public boolean isUsed(): Checks if the attribute has been used in learning a decision tree
  *  
@@ -41,6 +45,15 @@ public class CategoricalType {
 	/** The categories. */
 	private List <String> categories = new ArrayList<String>(); //List with possible values
 	
+	/** The encoded categories. */
+	private List <byte[]> encodedCategories = new ArrayList<byte[]>(); //Possible values encoded as UTF-8, for reading them directly from bytes
+	
+	/** The slots. */
+	private int[] slots = new int[8]; //Hash dictionary with linear probing. Each slot holds the number of a category plus 1, or 0 if it is empty.
+	
+	/** The slot hashes. */
+	private int[] slotHashes = new int[8]; //Hash of the category in each slot, to avoid comparing categories whose hashes differ.
+	
 	/** The used. */
 	private boolean used=false; //Extra flag to indicate if this attribute has been used in the building of a tree
 	
@@ -73,6 +86,21 @@ public class CategoricalType {
 	 */
 	public int addCategory(String newCategory){//Adds a new category, or possible value of attribute (used on build time)
 		categories.add(newCategory);
+		encodedCategories.add(newCategory.getBytes(StandardCharsets.UTF_8));
+		if (getNumRepresentationOfCategory(newCategory)<0){ //On repeated categories, the first one keeps the mapping
+			if (categories.size()*2>slots.length){
+				int oldSlots[]=slots;
+				int oldSlotHashes[]=slotHashes;
+				slots=new int[oldSlots.length*2];
+				slotHashes=new int[oldSlots.length*2];
+				for (int i=0; i<oldSlots.length; i++){
+					if (oldSlots[i]!=0){
+						insert(oldSlots[i]-1, oldSlotHashes[i]);
+					}
+				}
+			}
+			insert(categories.size()-1, hash(newCategory));
+		}
 		return 1;
 	}
 	
@@ -102,7 +130,124 @@ public class CategoricalType {
 	 * @return the num representation of category
 	 */
 	public int getNumRepresentationOfCategory(String searchCategory){ //Maps between the value of attribute and the number it represents
-		return categories.indexOf(searchCategory); 
+		int h=hash(searchCategory);
+		int mask=slots.length-1;
+		for (int i=h&mask; slots[i]!=0; i=(i+1)&mask){
+			if (slotHashes[i]==h && categories.get(slots[i]-1).equals(searchCategory)){
+				return slots[i]-1;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets the num representation of a category given as UTF-8 bytes, without creating a String.
+	 *
+	 * @param bytes the array with the bytes
+	 * @param offset the position of the first byte
+	 * @param length the number of bytes
+	 * @return the num representation of category, or -1 if it is not a category
+	 */
+	public int getNumRepresentationOfCategory(byte[] bytes, int offset, int length){ //Maps between the value of attribute, as bytes, and the number it represents
+		int h=hash(bytes, offset, length);
+		int mask=slots.length-1;
+		for (int i=h&mask; slots[i]!=0; i=(i+1)&mask){
+			if (slotHashes[i]==h){
+				byte encoded[]=encodedCategories.get(slots[i]-1);
+				if (encoded.length==length){
+					int j=0;
+					while (j<length && encoded[j]==bytes[offset+j]){
+						j++;
+					}
+					if (j==length){
+						return slots[i]-1;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Function that inserts a category in the hash dictionary.
+	 *
+	 * @param num the number of the category
+	 * @param h the hash of the category
+	 */
+	private void insert(int num, int h){
+		int mask=slots.length-1;
+		int i=h&mask;
+		while (slots[i]!=0){
+			i=(i+1)&mask;
+		}
+		slots[i]=num+1;
+		slotHashes[i]=h;
+	}
+	
+	/**
+	 * Function that returns the hash (FNV-1a, with a final mix) of a value given as UTF-8 bytes.
+	 *
+	 * @param bytes the bytes
+	 * @param offset the offset
+	 * @param length the length
+	 * @return the hash
+	 */
+	private static int hash(byte[] bytes, int offset, int length){
+		int h=0x811C9DC5;
+		for (int i=offset; i<offset+length; i++){
+			h=(h^(bytes[i]&0xFF))*0x01000193;
+		}
+		return mix(h);
+	}
+	
+	/**
+	 * Function that returns the hash of a value given as a string. It is the hash of its UTF-8 bytes,
+	 * which are computed on the fly, so that strings and bytes can be looked up in the same dictionary.
+	 *
+	 * @param value the value
+	 * @return the hash
+	 */
+	private static int hash(String value){
+		int h=0x811C9DC5;
+		for (int i=0; i<value.length(); i++){
+			int c=value.charAt(i);
+			if (c<0x80){
+				h=(h^c)*0x01000193;
+			}
+			else if (c<0x800){
+				h=(h^(0xC0|(c>>6)))*0x01000193;
+				h=(h^(0x80|(c&0x3F)))*0x01000193;
+			}
+			else if (Character.isHighSurrogate((char)c) && i+1<value.length() && Character.isLowSurrogate(value.charAt(i+1))){
+				int codePoint=Character.toCodePoint((char)c, value.charAt(++i));
+				h=(h^(0xF0|(codePoint>>18)))*0x01000193;
+				h=(h^(0x80|((codePoint>>12)&0x3F)))*0x01000193;
+				h=(h^(0x80|((codePoint>>6)&0x3F)))*0x01000193;
+				h=(h^(0x80|(codePoint&0x3F)))*0x01000193;
+			}
+			else if (Character.isSurrogate((char)c)){
+				h=(h^'?')*0x01000193; //Unpaired surrogates are encoded as '?'
+			}
+			else{
+				h=(h^(0xE0|(c>>12)))*0x01000193;
+				h=(h^(0x80|((c>>6)&0x3F)))*0x01000193;
+				h=(h^(0x80|(c&0x3F)))*0x01000193;
+			}
+		}
+		return mix(h);
+	}
+	
+	/**
+	 * Function that spreads the bits of a hash, so that the low bits used for the slots depend on all of them.
+	 *
+	 * @param h the hash
+	 * @return the mixed hash
+	 */
+	private static int mix(int h){
+		h^=h>>>16;
+		h*=0x85EBCA6B;
+		h^=h>>>13;
+		return h;
 	}
 	
 	/**
@@ -0,0 +1,18 @@
+package ml.model;
+
+/** Classifier interface
+ *  <p>
+ *  Something that assigns a class to a tuple of attribute values, such as a compiled or a generated decision tree.
+ *  Implementations are immutable, and can be used from several threads.
+ *
+ * */
+public interface Classifier {
+
+	/**
+	 * Function that classifies a tuple.
+	 *
+	 * @param tuple the attribute values (the class, if present in the last position, is ignored)
+	 * @return value from 0 to n, indicating the class assigned to the tuple.
+	 */
+	int classify(int[] tuple);
+}
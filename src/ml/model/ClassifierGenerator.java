@@ -0,0 +1,320 @@
+package ml.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/** ClassifierGenerator class
+ *  <p>
+ *  Turns a trained DecisionTree into a generated class whose classify method is made of nested switch statements
+ *  on the values of the tuple, so that the JIT can inline and branch-predict the whole tree, without walking any data structure.
+ *  <p>
+ *  The source is built from the same information printed by printToXML (attributeUsed, incomingValueIndex and outputVariable),
+ *  compiled in memory with the compiler of javax.tools, and loaded by its own class loader. Each method holds at most about
+ *  METHOD_NODES nodes: subtrees are inlined into the method while they fit in what is left of its budget, and the others go
+ *  to methods of their own. This keeps methods below HUGE_METHOD_LIMIT bytes of bytecode, as the JIT does not compile bigger
+ *  methods with the default settings (-XX:+DontCompileHugeMethods). As in DecisionTree.classify, values without a descendant
+ *  lead to class 0.
+ *  <p>
+ *  When the tree has more than MAX_NODES nodes, when no compiler is available (a JRE without the jdk.compiler module),
+ *  when compilation fails, or when a generated method is still bigger than HUGE_METHOD_LIMIT (nodes with very many descendants),
+ *  the CompiledTree of the tree is returned instead.
+ *
+ * */
+public class ClassifierGenerator {
+
+	/** Trees with more nodes are not generated. */
+	public static final int MAX_NODES=20000;
+
+	/** Budget of nodes of each generated method. */
+	private static final int METHOD_NODES=256;
+
+	/** Size of the bytecode of a method, in bytes, above which the JIT does not compile it (HugeMethodLimit of HotSpot). */
+	static final int HUGE_METHOD_LIMIT=8000;
+
+	/** The name of the generated classes, followed by a number. */
+	private static final String CLASS_PREFIX="GeneratedDecisionTree";
+
+	/** The class count. */
+	private static final AtomicInteger classCount=new AtomicInteger(0); //To give a different name to each generated class.
+
+	/**Private constructor function, to defeat instantiation. */
+	private ClassifierGenerator(){
+		// Exists only to defeat instantiation.
+	}
+
+	/**
+	 * Function that returns a classifier for a trained tree: a generated class if possible, or else the compiled tree.
+	 *
+	 * @param tree the root of the tree
+	 * @return the classifier
+	 */
+	public static Classifier generate(DecisionTree tree){
+		if (tree.getNumNodes()>MAX_NODES){
+			return CompiledTree.compile(tree);
+		}
+		JavaCompiler compiler=ToolProvider.getSystemJavaCompiler();
+		if (compiler==null){
+			return CompiledTree.compile(tree);
+		}
+		String className=CLASS_PREFIX+classCount.getAndIncrement();
+		try {
+			byte classBytes[]=compile(compiler, className, generateSource(tree, className));
+			if (classBytes==null || maxCodeLength(classBytes)>HUGE_METHOD_LIMIT){ //A method too big to be compiled by the JIT would be slower
+				return CompiledTree.compile(tree);
+			}
+			Class<?> generatedClass=new GeneratedClassLoader(Classifier.class.getClassLoader()).define(className, classBytes);
+			return (Classifier)generatedClass.getDeclaredConstructor().newInstance();
+		} catch (Exception | LinkageError e) {
+			return CompiledTree.compile(tree); //The tree is still usable, only slower
+		}
+	}
+
+	/**
+	 * Function that generates the source of a class classifying with a tree.
+	 *
+	 * @param tree the root of the tree
+	 * @param className the class name
+	 * @return the source
+	 */
+	static String generateSource(DecisionTree tree, String className){
+		StringBuilder source=new StringBuilder();
+		source.append("public final class ").append(className).append(" implements ml.model.Classifier {\n");
+		source.append("\tpublic int classify(int[] t){\n\t\treturn node0(t);\n\t}\n");
+		List<DecisionTree> methodRoots=new ArrayList<DecisionTree>(); //Roots of the subtrees generated as methods
+		methodRoots.add(tree);
+		for (int m=0; m<methodRoots.size(); m++){
+			source.append("\tprivate static int node").append(m).append("(int[] t){\n");
+			appendNode(source, methodRoots.get(m), 2, methodRoots, METHOD_NODES);
+			source.append("\t}\n");
+		}
+		source.append("}\n");
+		return source.toString();
+	}
+
+	/**
+	 * Recursive function that appends the statements classifying with a node, to the method being generated. Descendants which
+	 * are leaves, or whose subtrees fit in what is left of the budget, are inlined, and the others become calls to methods of their own.
+	 *
+	 * @param source the source
+	 * @param node the node
+	 * @param indent the indentation
+	 * @param methodRoots the roots of the subtrees generated as methods
+	 * @param budget the number of nodes that can still be added to the method
+	 * @return the number of nodes added to the method, counting each call as one
+	 */
+	private static int appendNode(StringBuilder source, DecisionTree node, int indent, List<DecisionTree> methodRoots, int budget){
+		if (node.isLeaf()){
+			indent(source, indent).append("return ").append(node.getOutputVariable()).append(";\n");
+			return 1;
+		}
+		int used=1;
+		indent(source, indent).append("switch (t[").append(node.getAttributeUsed()).append("]){\n");
+		boolean generatedValues[]=new boolean[maxValue(node)+1];
+		for (int i=0; i<node.getNumDescendants(); i++){
+			DecisionTree child=node.getDescendant(i);
+			if (generatedValues[child.getIncomingValueIndex()]){
+				continue; //As in classify, the first descendant with a value is the one followed
+			}
+			generatedValues[child.getIncomingValueIndex()]=true;
+			indent(source, indent).append("case ").append(child.getIncomingValueIndex()).append(":\n");
+			if (child.isLeaf() || child.getNumNodes()<=budget-used){
+				used+=appendNode(source, child, indent+1, methodRoots, budget-used);
+			}
+			else{
+				indent(source, indent+1).append("return node").append(methodRoots.size()).append("(t);\n");
+				methodRoots.add(child);
+				used++;
+			}
+		}
+		indent(source, indent).append("default:\n");
+		indent(source, indent+1).append("return 0;\n");
+		indent(source, indent).append("}\n");
+		return used;
+	}
+
+	/**
+	 * Function that returns the greatest incoming value of the descendants of a node.
+	 *
+	 * @param node the node
+	 * @return the max value
+	 */
+	private static int maxValue(DecisionTree node){
+		int result=0;
+		for (int i=0; i<node.getNumDescendants(); i++){
+			result=Math.max(result, node.getDescendant(i).getIncomingValueIndex());
+		}
+		return result;
+	}
+
+	/**
+	 * Function that returns the size of the bytecode of the biggest method of a class, read from its class file.
+	 *
+	 * @param classBytes the bytes of the class
+	 * @return the max code length, or Integer.MAX_VALUE if the class file cannot be read
+	 */
+	static int maxCodeLength(byte[] classBytes){
+		DataInputStream input=new DataInputStream(new ByteArrayInputStream(classBytes));
+		try {
+			input.skipBytes(8); //Magic and version
+			int constantPoolCount=input.readUnsignedShort();
+			String constants[]=new String[constantPoolCount]; //Only the UTF-8 constants, for the names of the attributes
+			for (int i=1; i<constantPoolCount; i++){
+				int tag=input.readUnsignedByte();
+				switch (tag){
+				case 1: //Utf8
+					constants[i]=input.readUTF();
+					break;
+				case 5: case 6: //Long and Double take two entries
+					input.skipBytes(8);
+					i++;
+					break;
+				case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+					input.skipBytes(4);
+					break;
+				case 15: //MethodHandle
+					input.skipBytes(3);
+					break;
+				case 7: case 8: case 16: case 19: case 20:
+					input.skipBytes(2);
+					break;
+				default:
+					return Integer.MAX_VALUE;
+				}
+			}
+			input.skipBytes(6); //Access flags, this class and super class
+			input.skipBytes(2*input.readUnsignedShort()); //Interfaces
+			int result=0;
+			for (int members=0; members<2; members++){ //Fields, and then methods
+				int count=input.readUnsignedShort();
+				for (int m=0; m<count; m++){
+					input.skipBytes(6); //Access flags, name and descriptor
+					int numAttributes=input.readUnsignedShort();
+					for (int a=0; a<numAttributes; a++){
+						String name=constants[input.readUnsignedShort()];
+						int length=input.readInt();
+						if ("Code".equals(name)){
+							input.skipBytes(4); //Max stack and max locals
+							result=Math.max(result, input.readInt());
+							input.skipBytes(length-8);
+						}
+						else{
+							input.skipBytes(length);
+						}
+					}
+				}
+			}
+			return result;
+		} catch (IOException | ArrayIndexOutOfBoundsException e) {
+			return Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Function that appends tabs to the source.
+	 *
+	 * @param source the source
+	 * @param indent the number of tabs
+	 * @return the source
+	 */
+	private static StringBuilder indent(StringBuilder source, int indent){
+		for (int i=0; i<indent; i++){
+			source.append('\t');
+		}
+		return source;
+	}
+
+	/**
+	 * Function that compiles a source in memory.
+	 *
+	 * @param compiler the compiler
+	 * @param className the class name
+	 * @param source the source
+	 * @return the bytes of the class, or null if the compilation failed
+	 */
+	private static byte[] compile(JavaCompiler compiler, String className, final String source){
+		final Map<String, ByteArrayOutputStream> output=new HashMap<String, ByteArrayOutputStream>();
+		StandardJavaFileManager standardManager=compiler.getStandardFileManager(null, null, null);
+		ForwardingJavaFileManager<StandardJavaFileManager> fileManager=new ForwardingJavaFileManager<StandardJavaFileManager>(standardManager){
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind, FileObject sibling){
+				final ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+				output.put(name, bytes);
+				return new SimpleJavaFileObject(URI.create("mem:///"+name.replace('.', '/')+kind.extension), kind){
+					@Override
+					public OutputStream openOutputStream(){
+						return bytes;
+					}
+				};
+			}
+		};
+		JavaFileObject sourceFile=new SimpleJavaFileObject(URI.create("string:///"+className+JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE){
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors){
+				return source;
+			}
+		};
+		List<String> options=Arrays.asList("-classpath", System.getProperty("java.class.path"), "-g:none", "-nowarn");
+		DiagnosticCollector<JavaFileObject> diagnostics=new DiagnosticCollector<JavaFileObject>(); //Errors lead to the fallback, they are not printed
+		boolean success;
+		try {
+			success=compiler.getTask(null, fileManager, diagnostics, options, null, Arrays.asList(sourceFile)).call();
+		} finally {
+			try {
+				fileManager.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		ByteArrayOutputStream bytes=output.get(className);
+		if (!success || bytes==null){
+			return null;
+		}
+		return bytes.toByteArray();
+	}
+
+	/** GeneratedClassLoader class
+	 *  <p>
+	 *  Loader of one generated class. The class, and its loader, can be unloaded once the classifier is no longer used.
+	 * */
+	private static class GeneratedClassLoader extends ClassLoader {
+
+		/**
+		 * Instantiates a new generated class loader.
+		 *
+		 * @param parent the parent, which must see the Classifier interface
+		 */
+		GeneratedClassLoader(ClassLoader parent){
+			super(parent);
+		}
+
+		/**
+		 * Function that defines the generated class.
+		 *
+		 * @param className the class name
+		 * @param classBytes the class bytes
+		 * @return the class
+		 */
+		Class<?> define(String className, byte[] classBytes){
+			return defineClass(className, classBytes, 0, classBytes.length);
+		}
+	}
+}
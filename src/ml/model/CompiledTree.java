@@ -0,0 +1,425 @@
+package ml.model;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** CompiledTree class
+ *  <p>
+ *  Immutable, flattened, version of a trained DecisionTree, for fast classification.
+ *  <p>
+ *  Nodes are numbered breadth first (the root is node 0) and described by parallel arrays: the attribute tested
+ *  (-1 for leaves), the class assigned (for leaves), and the number of the first child. The children of a node are
+ *  contiguous and ordered by value, so the child reached by value v is simply childBase+v, and classifying is a loop
+ *  of array reads, without recursion or searches among the descendants.
+ *  <p>
+ *  Values without a descendant in the original tree (and values out of range) lead to class 0, as in DecisionTree.classify.
+ *  A compiled tree does not follow later changes (for example, pruning) of the tree it was built from.
+ *  <p>
+ *  Many instances can be classified at once with classifyBatch, from a Dataset (column layout) or from a flat array of
+ *  tuples (row layout). Rows are processed in blocks of BLOCK_SIZE, advancing all the rows of a block one level at a time,
+ *  so that the reads of independent rows overlap, and big batches can be split among the threads of a ForkJoinPool.
+ *
+ * */
+public class CompiledTree implements Classifier {
+
+	/** The number of rows classified together. */
+	private static final int BLOCK_SIZE=1024;
+
+	/** Batches with more rows than this are split among threads, when a pool is given. */
+	private static final int PARALLEL_THRESHOLD=BLOCK_SIZE*16;
+
+	/** The attribute. */
+	private final int[] attribute; //Attribute tested in each node, -1 if the node is a leaf.
+
+	/** The output. */
+	private final int[] output; //Class assigned by each leaf.
+
+	/** The child base. */
+	private final int[] childBase; //Number of the child reached by value 0, in internal nodes.
+
+	/** The num values. */
+	private final int[] numValues; //Number of children, in internal nodes.
+
+	/**
+	 * Instantiates a new compiled tree from its arrays.
+	 *
+	 * @param attribute the attribute
+	 * @param output the output
+	 * @param childBase the child base
+	 * @param numValues the num values
+	 */
+	private CompiledTree(int[] attribute, int[] output, int[] childBase, int[] numValues){
+		this.attribute=attribute;
+		this.output=output;
+		this.childBase=childBase;
+		this.numValues=numValues;
+	}
+
+	/**
+	 * Function that compiles a trained decision tree.
+	 *
+	 * @param tree the root of the tree
+	 * @return the compiled tree
+	 */
+	public static CompiledTree compile(DecisionTree tree){
+		List<DecisionTree> nodes=new ArrayList<DecisionTree>(); //Breadth first, null for values without a descendant
+		nodes.add(tree);
+		int size=countSlots(tree);
+		int attribute[]=new int[size];
+		int output[]=new int[size];
+		int childBase[]=new int[size];
+		int numValues[]=new int[size];
+		for (int n=0; n<nodes.size(); n++){
+			DecisionTree node=nodes.get(n);
+			attribute[n]=-1;
+			if (node==null){
+				continue; //Missing descendant: a leaf with class 0
+			}
+			if (node.isLeaf()){
+				output[n]=node.getOutputVariable();
+				continue;
+			}
+			DecisionTree children[]=new DecisionTree[getNumValues(node)];
+			for (int i=0; i<node.getNumDescendants(); i++){
+				DecisionTree child=node.getDescendant(i);
+				if (children[child.getIncomingValueIndex()]==null){ //As in classify, the first descendant with a value is the one followed
+					children[child.getIncomingValueIndex()]=child;
+				}
+			}
+			attribute[n]=node.getAttributeUsed();
+			childBase[n]=nodes.size();
+			numValues[n]=children.length;
+			for (int v=0; v<children.length; v++){
+				nodes.add(children[v]);
+			}
+		}
+		return new CompiledTree(attribute, output, childBase, numValues);
+	}
+
+	/**
+	 * Recursive function that returns the number of nodes of the compiled version of a tree, including the leaves added for values without a descendant.
+	 *
+	 * @param node the node
+	 * @return the number of nodes
+	 */
+	private static int countSlots(DecisionTree node){
+		int count=1;
+		if (!node.isLeaf()){
+			count+=getNumValues(node)-node.getNumDescendants(); //Missing descendants
+			for (int i=0; i<node.getNumDescendants(); i++){
+				count+=countSlots(node.getDescendant(i));
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Function that returns the number of children of a node in the compiled tree: one per value, up to its greatest incoming value.
+	 *
+	 * @param node the node
+	 * @return the number of values
+	 */
+	private static int getNumValues(DecisionTree node){
+		int result=0;
+		for (int i=0; i<node.getNumDescendants(); i++){
+			result=Math.max(result, node.getDescendant(i).getIncomingValueIndex()+1);
+		}
+		return result;
+	}
+
+	/**
+	 * Function that classifies a tuple.
+	 *
+	 * @param tuple the attribute values (the class, if present in the last position, is ignored)
+	 * @return value from 0 to n, indicating the class assigned to the tuple by the tree.
+	 */
+	@Override
+	public int classify(int[] tuple){
+		int node=0;
+		int attr;
+		while ((attr=attribute[node])>=0){
+			int value=tuple[attr];
+			if (value<0 || value>=numValues[node]){
+				return 0;
+			}
+			node=childBase[node]+value;
+		}
+		return output[node];
+	}
+
+	/**
+	 * Function that classifies a row of a dataset, reading the attribute values directly from its columns.
+	 *
+	 * @param dataset the dataset
+	 * @param row the row to be classified
+	 * @return value from 0 to n, indicating the class assigned to the row by the tree.
+	 */
+	public int classify(Dataset dataset, int row){
+		int node=0;
+		int attr;
+		while ((attr=attribute[node])>=0){
+			int value=dataset.getValue(row, attr);
+			if (value>=numValues[node]){
+				return 0;
+			}
+			node=childBase[node]+value;
+		}
+		return output[node];
+	}
+
+	/**
+	 * Function that classifies the rows of a dataset in positions from (inclusive) to to (exclusive).
+	 *
+	 * @param dataset the dataset
+	 * @param from the from
+	 * @param to the to
+	 * @param predictions the array where the class of row from+i is written in position i
+	 */
+	public void classifyBatch(Dataset dataset, int from, int to, int[] predictions){
+		classifyBlocks(dataset, from, to, predictions, 0);
+	}
+
+	/**
+	 * Function that classifies the rows of a dataset in positions from (inclusive) to to (exclusive), block by block.
+	 *
+	 * @param dataset the dataset
+	 * @param from the from
+	 * @param to the to
+	 * @param predictions the array where the class of row from+i is written in position predictionOffset+i
+	 * @param predictionOffset the position of the prediction of row from
+	 */
+	private void classifyBlocks(Dataset dataset, int from, int to, int[] predictions, int predictionOffset){
+		int nodes[]=new int[BLOCK_SIZE];
+		int active[]=new int[BLOCK_SIZE];
+		for (int blockStart=from; blockStart<to; blockStart+=BLOCK_SIZE){
+			int numActive=Math.min(BLOCK_SIZE, to-blockStart);
+			int base=predictionOffset+blockStart-from; //Position of the prediction of the first row of the block
+			for (int k=0; k<numActive; k++){
+				nodes[k]=0;
+				active[k]=k;
+			}
+			while (numActive>0){ //Each pass moves every unfinished row of the block one level down
+				int stillActive=0;
+				for (int k=0; k<numActive; k++){
+					int position=active[k];
+					int node=nodes[position];
+					int attr=attribute[node];
+					if (attr<0){
+						predictions[base+position]=output[node];
+						continue;
+					}
+					int value=dataset.getValue(blockStart+position, attr);
+					if (value>=numValues[node]){
+						predictions[base+position]=0;
+						continue;
+					}
+					nodes[position]=childBase[node]+value;
+					active[stillActive++]=position;
+				}
+				numActive=stillActive;
+			}
+		}
+	}
+
+	/**
+	 * Function that classifies a block of tuples stored one after the other in an array of ints.
+	 * Tuple i starts at position offset+i*stride, and holds the value of attribute j at position offset+i*stride+j.
+	 *
+	 * @param tuples the tuples
+	 * @param offset the position of the first tuple
+	 * @param stride the distance between consecutive tuples (at least the number of attributes)
+	 * @param numTuples the number of tuples
+	 * @param predictions the array where the class of tuple i is written in position i
+	 */
+	public void classifyBatch(int[] tuples, int offset, int stride, int numTuples, int[] predictions){
+		classifyBlocks(tuples, offset, stride, numTuples, predictions, 0);
+	}
+
+	/**
+	 * Function that classifies a block of tuples stored one after the other in an array of ints, block by block.
+	 *
+	 * @param tuples the tuples
+	 * @param offset the position of the first tuple
+	 * @param stride the distance between consecutive tuples (at least the number of attributes)
+	 * @param numTuples the number of tuples
+	 * @param predictions the array where the class of tuple i is written in position predictionOffset+i
+	 * @param predictionOffset the position of the prediction of the first tuple
+	 */
+	private void classifyBlocks(int[] tuples, int offset, int stride, int numTuples, int[] predictions, int predictionOffset){
+		int nodes[]=new int[BLOCK_SIZE];
+		int active[]=new int[BLOCK_SIZE];
+		for (int blockStart=0; blockStart<numTuples; blockStart+=BLOCK_SIZE){
+			int numActive=Math.min(BLOCK_SIZE, numTuples-blockStart);
+			int base=predictionOffset+blockStart;
+			for (int k=0; k<numActive; k++){
+				nodes[k]=0;
+				active[k]=k;
+			}
+			while (numActive>0){
+				int stillActive=0;
+				for (int k=0; k<numActive; k++){
+					int position=active[k];
+					int node=nodes[position];
+					int attr=attribute[node];
+					if (attr<0){
+						predictions[base+position]=output[node];
+						continue;
+					}
+					int value=tuples[offset+(blockStart+position)*stride+attr];
+					if (value<0 || value>=numValues[node]){
+						predictions[base+position]=0;
+						continue;
+					}
+					nodes[position]=childBase[node]+value;
+					active[stillActive++]=position;
+				}
+				numActive=stillActive;
+			}
+		}
+	}
+
+	/**
+	 * Function that classifies the rows of a dataset in positions from (inclusive) to to (exclusive), splitting big batches
+	 * among the threads of a pool.
+	 *
+	 * @param dataset the dataset
+	 * @param from the from
+	 * @param to the to
+	 * @param predictions the array where the class of row from+i is written in position i
+	 * @param pool the pool, or null to classify in the calling thread
+	 */
+	public void classifyBatch(Dataset dataset, int from, int to, int[] predictions, ForkJoinPool pool){
+		if (pool==null || to-from<=PARALLEL_THRESHOLD){
+			classifyBatch(dataset, from, to, predictions);
+			return;
+		}
+		pool.invoke(new BatchTask(this, dataset, null, 0, 0, from, to, predictions, 0));
+	}
+
+	/**
+	 * Function that classifies a block of tuples stored one after the other in an array of ints, splitting big batches
+	 * among the threads of a pool.
+	 *
+	 * @param tuples the tuples
+	 * @param offset the position of the first tuple
+	 * @param stride the distance between consecutive tuples (at least the number of attributes)
+	 * @param numTuples the number of tuples
+	 * @param predictions the array where the class of tuple i is written in position i
+	 * @param pool the pool, or null to classify in the calling thread
+	 */
+	public void classifyBatch(int[] tuples, int offset, int stride, int numTuples, int[] predictions, ForkJoinPool pool){
+		if (pool==null || numTuples<=PARALLEL_THRESHOLD){
+			classifyBatch(tuples, offset, stride, numTuples, predictions);
+			return;
+		}
+		pool.invoke(new BatchTask(this, null, tuples, offset, stride, 0, numTuples, predictions, 0));
+	}
+
+	/**
+	 * Gets the number of nodes, including the leaves added for values without a descendant.
+	 *
+	 * @return the number of nodes
+	 */
+	public int getNumNodes(){
+		return attribute.length;
+	}
+
+	/**
+	 * Function that writes the arrays of the compiled tree, one after the other, as ints.
+	 *
+	 * @param out the output
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void writeTo(DataOutput out) throws IOException{
+		int arrays[][]={attribute, output, childBase, numValues};
+		for (int a=0; a<arrays.length; a++){
+			for (int n=0; n<arrays[a].length; n++){
+				out.writeInt(arrays[a][n]);
+			}
+		}
+	}
+
+	/** BatchTask class
+	 *  <p>
+	 *  Task that classifies a range of a batch, halving it while it is bigger than PARALLEL_THRESHOLD.
+	 *  Each half writes to its own range of the predictions.
+	 * */
+	@SuppressWarnings("serial")
+	private static class BatchTask extends RecursiveAction {
+
+		/** The tree. */
+		private CompiledTree tree;
+
+		/** The dataset. */
+		private Dataset dataset; //Column layout, null if the batch is in row layout.
+
+		/** The tuples. */
+		private int[] tuples; //Row layout, null if the batch is in column layout.
+
+		/** The offset. */
+		private int offset;
+
+		/** The stride. */
+		private int stride;
+
+		/** The from. */
+		private int from;
+
+		/** The to. */
+		private int to;
+
+		/** The predictions. */
+		private int[] predictions;
+
+		/** The prediction offset. */
+		private int predictionOffset; //Position of the prediction of row from.
+
+		/**
+		 * Instantiates a new batch task.
+		 *
+		 * @param tree the tree
+		 * @param dataset the dataset
+		 * @param tuples the tuples
+		 * @param offset the offset
+		 * @param stride the stride
+		 * @param from the from
+		 * @param to the to
+		 * @param predictions the predictions
+		 * @param predictionOffset the prediction offset
+		 */
+		BatchTask(CompiledTree tree, Dataset dataset, int[] tuples, int offset, int stride, int from, int to, int[] predictions, int predictionOffset){
+			this.tree=tree;
+			this.dataset=dataset;
+			this.tuples=tuples;
+			this.offset=offset;
+			this.stride=stride;
+			this.from=from;
+			this.to=to;
+			this.predictions=predictions;
+			this.predictionOffset=predictionOffset;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute(){
+			if (to-from>PARALLEL_THRESHOLD){
+				int middle=from+((to-from)/(2*BLOCK_SIZE))*BLOCK_SIZE; //Halves are whole blocks
+				invokeAll(new BatchTask(tree, dataset, tuples, offset, stride, from, middle, predictions, predictionOffset),
+						new BatchTask(tree, dataset, tuples, offset, stride, middle, to, predictions, predictionOffset+(middle-from)));
+				return;
+			}
+			if (dataset!=null){ //Written in place, in the range of this task
+				tree.classifyBlocks(dataset, from, to, predictions, predictionOffset);
+			}
+			else{
+				tree.classifyBlocks(tuples, offset+from*stride, stride, to-from, predictions, predictionOffset);
+			}
+		}
+	}
+}
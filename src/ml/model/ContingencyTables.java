@@ -0,0 +1,219 @@
+package ml.model;
+
+/** ContingencyTables class
+ *  <p>
+ *  Holds, for the instances of a node, the value x class contingency table of each candidate attribute,
+ *  plus the number of instances of each class. All tables are filled in a single pass over the rows,
+ *  and every information gain needed to select an attribute is then derived from them, without
+ *  going back to the data.
+ *  <p>
+ *  The table of an attribute is stored as a flat int[], where position value*numClasses+class
+ *  holds the number of instances with that value and that class.
+ *
+ * */
+public class ContingencyTables {
+
+	/** Number of rows processed per block. */
+	private static final int BLOCK_SIZE=1024;
+
+	/** The number of classes. */
+	private int numClasses;
+
+	/** The number of rows counted. */
+	private int numRows=0;
+
+	/** The class counts. */
+	private int[] classCounts; //Instances of each class.
+
+	/** The counts. */
+	private int[][] counts; //One flat value x class table per attribute, null for attributes that are not candidates.
+
+	/**
+	 * Instantiates new, empty, contingency tables for the candidate attributes of a dataset.
+	 *
+	 * @param data the dataset, used for its headers
+	 * @param candidates flags indicating, for each attribute, if its table must be built
+	 */
+	public ContingencyTables(Dataset data, boolean[] candidates){
+		numClasses=data.getClassHeader().getNumCategories();
+		classCounts=new int[numClasses];
+		counts=new int[data.getNumAttributes()][];
+		for (int i=0; i<counts.length; i++){
+			if (candidates[i]){
+				counts[i]=new int[data.getHeader(i).getNumCategories()*numClasses];
+			}
+		}
+	}
+
+	/**
+	 * Function that adds up to the tables the rows of a dataset whose indexes are in positions from (inclusive) to to (exclusive)
+	 * of the rows array. The rows are processed in blocks, for each block the class column is read once and then the column of
+	 * each candidate attribute is scanned.
+	 *
+	 * @param data the dataset
+	 * @param rows the row indexes
+	 * @param from the from
+	 * @param to the to
+	 */
+	public void add(Dataset data, int[] rows, int from, int to){
+		int classBlock[]=new int[Math.min(BLOCK_SIZE, Math.max(to-from, 0))];
+		for (int start=from; start<to; start+=BLOCK_SIZE){
+			int end=Math.min(start+BLOCK_SIZE, to);
+			for (int r=start; r<end; r++){
+				int classValue=data.getClassValue(rows[r]);
+				classBlock[r-start]=classValue;
+				classCounts[classValue]++;
+			}
+			for (int i=0; i<counts.length; i++){
+				int table[]=counts[i];
+				if (table==null){
+					continue;
+				}
+				if (data.isByteColumn(i)){
+					byte column[]=data.getByteColumn(i);
+					for (int r=start; r<end; r++){
+						table[(column[rows[r]]&0xFF)*numClasses+classBlock[r-start]]++;
+					}
+				}
+				else{
+					short column[]=data.getShortColumn(i);
+					for (int r=start; r<end; r++){
+						table[(column[rows[r]]&0xFFFF)*numClasses+classBlock[r-start]]++;
+					}
+				}
+			}
+		}
+		numRows+=Math.max(to-from, 0);
+	}
+
+	/**
+	 * Sets the number of instances with a value of an attribute and a class, for engines that count by other means
+	 * than scanning the rows.
+	 *
+	 * @param attributeIndex the attribute index
+	 * @param value the value
+	 * @param classNum the class num
+	 * @param count the count
+	 */
+	void setCount(int attributeIndex, int value, int classNum, int count){
+		counts[attributeIndex][value*numClasses+classNum]=count;
+	}
+
+	/**
+	 * Sets the number of instances of each class, for engines that count by other means than scanning the rows.
+	 *
+	 * @param newClassCounts the new class counts
+	 */
+	void setClassCounts(int[] newClassCounts){
+		numRows=0;
+		for (int j=0; j<numClasses; j++){
+			classCounts[j]=newClassCounts[j];
+			numRows+=newClassCounts[j];
+		}
+	}
+
+	/**
+	 * Function that adds up to these tables the counts of other tables, built for the same candidate attributes
+	 * over a different block of rows.
+	 *
+	 * @param other the other tables
+	 */
+	public void merge(ContingencyTables other){
+		for (int j=0; j<numClasses; j++){
+			classCounts[j]+=other.classCounts[j];
+		}
+		for (int i=0; i<counts.length; i++){
+			if (counts[i]!=null){
+				for (int k=0; k<counts[i].length; k++){
+					counts[i][k]+=other.counts[i][k];
+				}
+			}
+		}
+		numRows+=other.numRows;
+	}
+
+	/**
+	 * Function that returns, for each value of an attribute, the number of instances with that value.
+	 *
+	 * @param attributeIndex the attribute index
+	 * @return the value counts
+	 */
+	public int[] getValueCounts(int attributeIndex){
+		int table[]=counts[attributeIndex];
+		int valueCounts[]=new int[table.length/numClasses];
+		for (int i=0; i<valueCounts.length; i++){
+			for (int j=0; j<numClasses; j++){
+				valueCounts[i]+=table[i*numClasses+j];
+			}
+		}
+		return valueCounts;
+	}
+
+	/**
+	 * Function that returns the number of instances of each class, among those with a specific value of an attribute.
+	 *
+	 * @param attributeIndex the attribute index
+	 * @param value the value
+	 * @return the class counts
+	 */
+	public int[] getClassCounts(int attributeIndex, int value){
+		int result[]=new int[numClasses];
+		System.arraycopy(counts[attributeIndex], value*numClasses, result, 0, numClasses);
+		return result;
+	}
+
+	/**
+	 * Gets the num rows.
+	 *
+	 * @return the num rows
+	 */
+	public int getNumRows(){
+		return numRows;
+	}
+
+	/**
+	 * Function that returns the number of instances which belong to a class.
+	 *
+	 * @param classNum the class num
+	 * @return the number of instances
+	 */
+	public int getClassCount(int classNum){
+		return classCounts[classNum];
+	}
+
+	/**
+	 * Checks if the table of an attribute was built.
+	 *
+	 * @param attributeIndex the attribute index
+	 * @return true, if the attribute is a candidate
+	 */
+	public boolean isCandidate(int attributeIndex){
+		return counts[attributeIndex]!=null;
+	}
+
+	/**
+	 * Function that returns the entropy of the counted instances, over the classes.
+	 *
+	 * @return the entropy
+	 */
+	public double getEntropy(){
+		return EntropyEngine.entropy(classCounts, 0, numClasses);
+	}
+
+	/**
+	 * Function that returns the information gain from splitting on an attribute, given the
+	 * entropy of the node (which can be calculated once for all attributes with getEntropy()).
+	 *
+	 * @param attributeIndex the attribute index
+	 * @param nodeEntropy the entropy of the node
+	 * @return the information gain
+	 */
+	public double informationGain(int attributeIndex, double nodeEntropy){
+		if (numRows==0 || numClasses<2){
+			return nodeEntropy;
+		}
+		int table[]=counts[attributeIndex];
+		double splitTerm=EntropyEngine.splitTerm(table, table.length/numClasses, numClasses);
+		return nodeEntropy-splitTerm/(numRows*EntropyEngine.log2(numClasses));
+	}
+}
@@ -0,0 +1,301 @@
+package ml.model;
+
+import java.util.List;
+
+/** Dataset class
+ *  <p>
+ *  Columnar representation of categorical data. Instead of keeping one array of ints per instance,
+ *  this class keeps one primitive column per attribute, plus a final column for the class (or output variable),
+ *  so that column index numAttributes is the class, just as the last position of a tuple is the class.
+ *  <p>
+ *  Each column is sized by the number of categories of its CategoricalType: a byte[] is used when there are
+ *  at most 256 categories, and a short[] when there are at most 65536 categories.
+ *  <p>
+ *  Rows are appended at build time (the dataset grows as needed), after that the dataset should be treated as read-only,
+ *  since subsets and trees share it.
+ *
+ * */
+public class Dataset {
+
+	/** Maximum number of categories that fit in a byte column. */
+	private static final int MAX_BYTE_CATEGORIES=256;
+
+	/** Maximum number of categories that fit in a short column. */
+	private static final int MAX_SHORT_CATEGORIES=65536;
+
+	/** The attribute header list. */
+	private List<CategoricalType> attributeHeaderList; //List of attributes.
+
+	/** The class header. */
+	private CategoricalType classHeader; //Output variable or class
+
+	/** The byte columns. */
+	private byte[][] byteColumns; //Columns stored as bytes, null in positions where a short column is used.
+
+	/** The short columns. */
+	private short[][] shortColumns; //Columns stored as shorts, null in positions where a byte column is used.
+
+	/** The number of rows. */
+	private int numRows=0;
+
+	/** The capacity. */
+	private int capacity; //Number of rows that fit in the columns before growing.
+
+	/**
+	 * Instantiates a new, empty, dataset.
+	 *
+	 * @param attributeHeaderList the attribute header list
+	 * @param classHeader the class header
+	 * @param initialCapacity the initial capacity, in rows
+	 */
+	public Dataset(List<CategoricalType> attributeHeaderList, CategoricalType classHeader, int initialCapacity){
+		this.attributeHeaderList=attributeHeaderList;
+		this.classHeader=classHeader;
+		capacity=Math.max(initialCapacity, 16);
+		int numColumns=attributeHeaderList.size()+1;
+		byteColumns=new byte[numColumns][];
+		shortColumns=new short[numColumns][];
+		for (int i=0; i<numColumns; i++){
+			int numCategories=getHeader(i).getNumCategories();
+			if (numCategories<=MAX_BYTE_CATEGORIES){
+				byteColumns[i]=new byte[capacity];
+			}
+			else if (numCategories<=MAX_SHORT_CATEGORIES){
+				shortColumns[i]=new short[capacity];
+			}
+			else{
+				throw new IllegalArgumentException("Too many categories for "+getHeader(i).getName()+": "+numCategories);
+			}
+		}
+	}
+
+	/**
+	 * Function that returns the CategoricalType describing a column.
+	 *
+	 * @param column the column
+	 * @return the header
+	 */
+	public CategoricalType getHeader(int column){
+		if (column==attributeHeaderList.size()){
+			return classHeader;
+		}
+		return attributeHeaderList.get(column);
+	}
+
+	/**
+	 * Gets the attribute header list.
+	 *
+	 * @return the attribute header list
+	 */
+	public List<CategoricalType> getAttributeHeaderList(){
+		return attributeHeaderList;
+	}
+
+	/**
+	 * Gets the class header.
+	 *
+	 * @return the class header
+	 */
+	public CategoricalType getClassHeader(){
+		return classHeader;
+	}
+
+	/**
+	 * Gets the num attributes.
+	 *
+	 * @return the num attributes
+	 */
+	public int getNumAttributes(){
+		return attributeHeaderList.size();
+	}
+
+	/**
+	 * Gets the num rows.
+	 *
+	 * @return the num rows
+	 */
+	public int getNumRows(){
+		return numRows;
+	}
+
+	/**
+	 * Function that appends an empty row (all values 0) to the dataset, growing the columns if needed.
+	 *
+	 * @return the index of the new row
+	 */
+	public int newRow(){
+		if (numRows==capacity){
+			grow();
+		}
+		return numRows++;
+	}
+
+	/**
+	 * Function that appends a number of empty rows (all values 0) to the dataset, growing the columns if needed.
+	 * Their values can then be filled in bulk through the arrays of getByteColumn and getShortColumn.
+	 *
+	 * @param count the number of rows
+	 * @return the index of the first new row
+	 */
+	public int newRows(int count){
+		while (numRows+count>capacity){
+			grow();
+		}
+		int firstRow=numRows;
+		numRows+=count;
+		return firstRow;
+	}
+
+	/**
+	 * Function that appends a tuple (attributes + class in the last position) to the dataset.
+	 *
+	 * @param tuple the tuple
+	 * @return the index of the new row
+	 */
+	public int addRow(int[] tuple){
+		int row=newRow();
+		for (int i=0; i<byteColumns.length; i++){
+			setValue(row, i, tuple[i]);
+		}
+		return row;
+	}
+
+	/**
+	 * Sets the value of a column in a row.
+	 *
+	 * @param row the row
+	 * @param column the column, numAttributes for the class
+	 * @param value the number representing the category
+	 */
+	public void setValue(int row, int column, int value){
+		if (value<0 || value>=getHeader(column).getNumCategories()){
+			throw new IllegalArgumentException("Unknown category for "+getHeader(column).getName()+" in row "+row);
+		}
+		if (byteColumns[column]!=null){
+			byteColumns[column][row]=(byte)value;
+		}
+		else{
+			shortColumns[column][row]=(short)value;
+		}
+	}
+
+	/**
+	 * Gets the value of a column in a row.
+	 *
+	 * @param row the row
+	 * @param column the column, numAttributes for the class
+	 * @return the number representing the category
+	 */
+	public int getValue(int row, int column){
+		byte[] byteColumn=byteColumns[column];
+		if (byteColumn!=null){
+			return byteColumn[row]&0xFF;
+		}
+		return shortColumns[column][row]&0xFFFF;
+	}
+
+	/**
+	 * Gets the class value of a row.
+	 *
+	 * @param row the row
+	 * @return the class value
+	 */
+	public int getClassValue(int row){
+		return getValue(row, attributeHeaderList.size());
+	}
+
+	/**
+	 * Function that copies a row into a tuple of ints (attributes + class in the last position).
+	 *
+	 * @param row the row
+	 * @param tuple the tuple to fill, of size numAttributes+1
+	 * @return the tuple
+	 */
+	public int[] getRow(int row, int[] tuple){
+		for (int i=0; i<byteColumns.length; i++){
+			tuple[i]=getValue(row, i);
+		}
+		return tuple;
+	}
+
+	/**
+	 * Checks if a column is stored as bytes.
+	 *
+	 * @param column the column
+	 * @return true, if the column is stored as bytes
+	 */
+	public boolean isByteColumn(int column){
+		return byteColumns[column]!=null;
+	}
+
+	/**
+	 * Gets a byte column, for sequential scans. Only valid positions are 0 to numRows-1. Values are to be read with &amp;0xFF.
+	 *
+	 * @param column the column
+	 * @return the byte column, or null if the column is stored as shorts
+	 */
+	public byte[] getByteColumn(int column){
+		return byteColumns[column];
+	}
+
+	/**
+	 * Gets a short column, for sequential scans. Only valid positions are 0 to numRows-1. Values are to be read with &amp;0xFFFF.
+	 *
+	 * @param column the column
+	 * @return the short column, or null if the column is stored as bytes
+	 */
+	public short[] getShortColumn(int column){
+		return shortColumns[column];
+	}
+
+	/**
+	 * Function that returns a new dataset with the rows whose indexes are in positions from (inclusive) to to (exclusive)
+	 * of the rows array. The headers are shared.
+	 *
+	 * @param rows the rows
+	 * @param from the from
+	 * @param to the to
+	 * @return the dataset
+	 */
+	public Dataset select(int[] rows, int from, int to){
+		Dataset result=new Dataset(attributeHeaderList, classHeader, to-from);
+		for (int i=0; i<byteColumns.length; i++){
+			if (byteColumns[i]!=null){
+				byte[] source=byteColumns[i];
+				byte[] target=result.byteColumns[i];
+				for (int j=from; j<to; j++){
+					target[j-from]=source[rows[j]];
+				}
+			}
+			else{
+				short[] source=shortColumns[i];
+				short[] target=result.shortColumns[i];
+				for (int j=from; j<to; j++){
+					target[j-from]=source[rows[j]];
+				}
+			}
+		}
+		result.numRows=to-from;
+		return result;
+	}
+
+	/**
+	 * Function that doubles the capacity of all columns.
+	 */
+	private void grow(){
+		int newCapacity=capacity*2;
+		for (int i=0; i<byteColumns.length; i++){
+			if (byteColumns[i]!=null){
+				byte[] aux=new byte[newCapacity];
+				System.arraycopy(byteColumns[i], 0, aux, 0, numRows);
+				byteColumns[i]=aux;
+			}
+			else{
+				short[] aux=new short[newCapacity];
+				System.arraycopy(shortColumns[i], 0, aux, 0, numRows);
+				shortColumns[i]=aux;
+			}
+		}
+		capacity=newCapacity;
+	}
+}
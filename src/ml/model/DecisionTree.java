@@ -1,8 +1,12 @@
 package ml.model;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.io.IOException;
 import java.io.PrintWriter;
 
 // TODO: Auto-generated Javadoc
@@ -10,7 +14,8 @@ import java.io.PrintWriter;
  *  <p>
  *  Represents a node of a decision tree over categorical data.
  *  <p>
- *  It includes the data used to build it (as a list of type array of ints).
+ *  It includes the number of training instances of each class that reached it (the data itself stays in the
+ *  Dataset shared by the whole tree).
  *  It also includes a list of CategoricalType for each attribute and output variable, which helps to map
  *  from the data representation to the actual named categories.
  *  <p>
@@ -24,15 +29,21 @@ import java.io.PrintWriter;
  * */
 public class DecisionTree {
 	
+	/** Gains closer than this are considered a tie, so that equal gains computed from different counts do not depend on rounding. */
+	private static final double GAIN_TOLERANCE=1e-12;
+	
 	/** The attribute header list. */
 	private List<CategoricalType> attributeHeaderList= new ArrayList<CategoricalType>();  //List of attributes.
 	
 	/** The class header. */
 	private CategoricalType classHeader; //Output variable or class
 	
-	/** The data. */
-	private List<int[]> data; //Data in the node as a list of instances, each represented as an array of numbers representing attributes + the final one representing the class.
+	/** The class counts. */
+	private int[] classCounts; //Number of training instances in the node for each class.
 	
+	/** The entropy. */
+	private double entropy; //Entropy of the class counts, calculated once when the node is built.
+
 	/** The descendants. */
 	private List<DecisionTree> descendants = new ArrayList<DecisionTree>(); //Array with the immediate descendants of this specific tree.
 
@@ -44,7 +55,7 @@ public class DecisionTree {
 	private int parentId=0;
 	
 	/** The id count. */
-	private static int idCount=1; //To keep track of the number of nodes in the whole tree.
+	private static final AtomicInteger idCount=new AtomicInteger(1); //To keep track of the number of nodes in the whole tree. Ids are reserved in blocks, once a tree is built.
 
 	//Extra information
 	/** The attribute used. */
@@ -62,6 +73,42 @@ public class DecisionTree {
 	/** The level. */
 	private int level=0;//Level of the node in the general tree. Values from 0 (root) to n (outermost leaf).
 
+	/**
+	 * Instantiates a new decision tree, to be built with branchWithID3.
+	 */
+	public DecisionTree(){
+	}
+
+	/**
+	 * Instantiates a new node of a trained tree, as read from a model file. Its descendants are added with addDescendant.
+	 *
+	 * @param attributeHeaderList the attribute header list
+	 * @param classHeader the class header
+	 * @param classCounts the class counts
+	 * @param entropy the entropy
+	 * @param id the id
+	 * @param parentId the parent id
+	 * @param level the level
+	 * @param attributeUsed the attribute used
+	 * @param incomingAttributeIndex the incoming attribute index
+	 * @param incomingValueIndex the incoming value index
+	 * @param outputVariable the output variable
+	 */
+	DecisionTree(List<CategoricalType> attributeHeaderList, CategoricalType classHeader, int[] classCounts, double entropy, int id, int parentId, int level,
+			int attributeUsed, int incomingAttributeIndex, int incomingValueIndex, int outputVariable){
+		this.attributeHeaderList=attributeHeaderList;
+		this.classHeader=classHeader;
+		this.classCounts=classCounts;
+		this.entropy=entropy;
+		this.id=id;
+		this.parentId=parentId;
+		this.level=level;
+		this.attributeUsed=attributeUsed;
+		this.incomingAttributeIndex=incomingAttributeIndex;
+		this.incomingValueIndex=incomingValueIndex;
+		this.outputVariable=outputVariable;
+	}
+
 	/**
 	 * Function to determine if the node is a leaf.
 	 *
@@ -76,7 +123,6 @@ public class DecisionTree {
 	 *
 	 * @return copy of the tree
 	 */	
-	@SuppressWarnings("static-access")
 	public DecisionTree getCopy(){//Returns a copy of the decision tree
 		DecisionTree retTree = new DecisionTree();
 		for (int i=0; i<attributeHeaderList.size(); i++){
@@ -84,10 +130,8 @@ public class DecisionTree {
 			retTree.attributeHeaderList.add(val);
 		}
 		retTree.classHeader= classHeader.getCopy();
-		retTree.data = new ArrayList <int[]>();
-		for (int j=0; j<data.size(); j++){
-			retTree.data.add(data.get(j));
-		}
+		retTree.classCounts = classCounts; //Class counts are not modified once built, so they can be shared.
+		retTree.entropy=entropy;
 		retTree.attributeUsed=attributeUsed; 
 		retTree.incomingAttributeIndex=incomingAttributeIndex;
 		retTree.incomingValueIndex=incomingValueIndex;
@@ -95,7 +139,6 @@ public class DecisionTree {
 		retTree.level=level;
 		retTree.id=id;
 		retTree.parentId=parentId;
-		retTree.idCount=idCount;
 		if (!isLeaf()){
 			for (int k=0; k<descendants.size(); k++){
 				DecisionTree aux=descendants.get(k).getCopy();
@@ -105,6 +148,66 @@ public class DecisionTree {
 		return retTree;
 	}
 
+	/**
+	 * Recursive function that returns a version of the tree where a non-leaf node, based on it's id, is collapsed into a leaf,
+	 * as with deleteNode, without modifying this tree. Only the node and its ancestors are copied: every other subtree,
+	 * and the headers and class counts, are shared with this tree, so trees built this way must not be modified with deleteNode.
+	 * <p>
+	 * The node is found through the ids, which are assigned in preorder: the descendant followed is the last one whose id is not
+	 * greater than the id searched.
+	 *
+	 * @param nodeId the node id
+	 * @return the new tree, or this tree if there is no non-leaf node with the id
+	 */
+	public DecisionTree withNodeCollapsed(int nodeId){
+		if (this.isLeaf()){
+			return this;
+		}
+		if (this.id==nodeId){
+			DecisionTree collapsed=getShallowCopy();
+			collapsed.descendants=new ArrayList<DecisionTree>();
+			collapsed.outputVariable=this.getMostCommonClass();
+			return collapsed;
+		}
+		int descendant=-1;
+		for (int i=0; i<descendants.size() && descendants.get(i).id<=nodeId; i++){
+			descendant=i;
+		}
+		if (descendant<0){
+			return this;
+		}
+		DecisionTree newDescendant=descendants.get(descendant).withNodeCollapsed(nodeId);
+		if (newDescendant==descendants.get(descendant)){
+			return this; //Not found
+		}
+		DecisionTree retTree=getShallowCopy();
+		retTree.descendants.set(descendant, newDescendant);
+		return retTree;
+	}
+
+	/**
+	 * Function that returns a copy of this node which shares the headers, the class counts and the descendants
+	 * (though not the list holding them).
+	 *
+	 * @return the copy of the node
+	 */
+	private DecisionTree getShallowCopy(){
+		DecisionTree retTree = new DecisionTree();
+		retTree.attributeHeaderList=attributeHeaderList;
+		retTree.classHeader=classHeader;
+		retTree.classCounts=classCounts;
+		retTree.entropy=entropy;
+		retTree.descendants=new ArrayList<DecisionTree>(descendants);
+		retTree.attributeUsed=attributeUsed;
+		retTree.incomingAttributeIndex=incomingAttributeIndex;
+		retTree.incomingValueIndex=incomingValueIndex;
+		retTree.outputVariable=outputVariable;
+		retTree.level=level;
+		retTree.id=id;
+		retTree.parentId=parentId;
+		return retTree;
+	}
+
 	/**
 	 * Recursive function that deletes a non-leaf node, based on it's id.
 	 *
@@ -132,14 +235,8 @@ public class DecisionTree {
 	 * @param classNum the class num
 	 * @return the num instances in class
 	 */
-	private int getNumInstancesInClass(int classNum){ 
-		int count=0;
-		for (int i=0; i<data.size();i++){
-			if (data.get(i)[attributeHeaderList.size()]==classNum){
-				count++;
-			}
-		}
-		return count;
+	int getNumInstancesInClass(int classNum){ 
+		return classCounts[classNum];
 	}
 	
 	/**
@@ -148,16 +245,11 @@ public class DecisionTree {
 	 *
 	 * @return the most common class
 	 */
-	private int getMostCommonClass(){ //Returns the most common class
+	int getMostCommonClass(){ //Returns the most common class
 		int mostCommonClass=0;
 		int mostCommonValue=0;
 		for (int j=0; j<classHeader.getNumCategories(); j++){
-			int count=0;
-			for (int i=0; i<data.size();i++){
-				if (data.get(i)[attributeHeaderList.size()]==j){
-					count++;
-				}
-			}
+			int count=classCounts[j];
 			if (count>mostCommonValue){
 				mostCommonClass=j;
 				mostCommonValue=count;
@@ -171,60 +263,35 @@ public class DecisionTree {
 	 *
 	 * @return the entropy
 	 */
-	private double getEntropy(){//Returns the entropy of the node
-		double tempEntropy=0;
-		int casesByOutputValues[]=new int[classHeader.getNumCategories()];
-		Arrays.fill(casesByOutputValues, 0);
-		for (int i=0; i<data.size(); i++){
-			casesByOutputValues[data.get(i)[attributeHeaderList.size()]]++; //Here we add-up all the instances observed in the node for each output value.
-		}
-		for (int i=0; i<classHeader.getNumCategories(); i++){
-			double p=((double)casesByOutputValues[i]/(double)data.size());
-			if (p!=0 & !Double.isNaN(p)){
-			tempEntropy+=((double)(-p)*((double)(Math.log(p))/(double)Math.log(classHeader.getNumCategories())));//We add-up the entropy for each output value.
-			}
-		}
-		return tempEntropy;
+	double getEntropy(){//Returns the entropy of the node
+		return entropy;
 	}
-	
+
 	/**
-	 * Function that returns the information gain from splitting on an attribute,
-	 * whose index is passed as a parameter.
+	 * Gets the class header.
 	 *
-	 * @param attributeIndex the attribute index
-	 * @return the double
+	 * @return the class header
 	 */
-	private double informationGain(int attributeIndex){//Here we calculate the information gain of the attribute whose index (in the attributeHeaderList) is passed as input
-		int totalAttributeValues=attributeHeaderList.get(attributeIndex).getNumCategories();
-		double gainOfAttribute=getEntropy(); //First term...
-		int casesByAttributeValues[]=new int[totalAttributeValues];
-		Arrays.fill(casesByAttributeValues, 0);
-		double p[]=new double[totalAttributeValues];
-		for (int i=0; i<data.size(); i++){
-			casesByAttributeValues[data.get(i)[attributeIndex]]++; //Here we add-up all instances in the node that belong to a specific attribute value.
-		}
-		for (int i=0; i<totalAttributeValues; i++){
-			p[i]=(double)casesByAttributeValues[i]/(double)data.size();//Intermediate proportions.
-		}
-	
-		for (int i=0; i<totalAttributeValues; i++){
-				double tempEntropy=0;
-				int casesByOutputValues[]=new int[classHeader.getNumCategories()];
-				Arrays.fill(casesByOutputValues, 0);
-				for (int j=0; j<data.size(); j++){
-					if (data.get(j)[attributeIndex]==i){
-							casesByOutputValues[data.get(j)[attributeHeaderList.size()]]++;//Here we add-up all the instances for each output value from each attribute value.
-					}
-				}
-				for (int j=0; j<classHeader.getNumCategories(); j++){
-					double p1=(double)casesByOutputValues[j]/(double)casesByAttributeValues[i];//Innermost proportion
-					if (p1!=0 && !Double.isNaN(p1)){
-						tempEntropy+=((-p1)*((double)Math.log(p1)/(double)Math.log(classHeader.getNumCategories())));
-					}
-				}
-				gainOfAttribute-=(p[i]*tempEntropy);//We multiply by intermediate proportion and add the term to the gain calculation.
-		}
-		return gainOfAttribute;
+	CategoricalType getClassHeader(){
+		return classHeader;
+	}
+
+	/**
+	 * Gets the attribute header list.
+	 *
+	 * @return the attribute header list
+	 */
+	List<CategoricalType> getAttributeHeaderList(){
+		return attributeHeaderList;
+	}
+
+	/**
+	 * Gets the attribute that was selected in the parent for branching.
+	 *
+	 * @return the incoming attribute index, -1 for the root
+	 */
+	int getIncomingAttributeIndex(){
+		return incomingAttributeIndex;
 	}
 	
 	/**
@@ -247,6 +314,27 @@ public class DecisionTree {
 		return 0;//This is not ok, but it should never reach this...		
 	}
 	
+	/**
+	 * Recursive function that classifies according the decision tree a row of a dataset,
+	 * reading the attribute values directly from its columns.
+	 *
+	 * @param dataset the dataset
+	 * @param row the row to be classified
+	 * @return value from 0 to n, indicating the class assigned to the row by the tree.
+	 */
+	public int classify(Dataset dataset, int row){
+		if (this.isLeaf()){
+			return outputVariable;
+		}
+		int value=dataset.getValue(row, attributeUsed);
+		for (int i=0; i<descendants.size(); i++){
+			if (descendants.get(i).incomingValueIndex==value){
+				return descendants.get(i).classify(dataset, row);
+			}
+		}
+		return 0;//This is not ok, but it should never reach this...
+	}
+	
 	/**
 	 * Recursive function that returns the ids of non-leaf nodes in a given level.
 	 *
@@ -275,11 +363,12 @@ public class DecisionTree {
 	}
 	
 	/**
-	 * Recursive function in charge of branching a given node, following the ID3 algorithm.
+	 * Function in charge of branching a given node, following the ID3 algorithm, over the rows
+	 * in positions from (inclusive) to to (exclusive) of the row index of the context.
 	 *
-	 * @param inheritedClassHeader the inherited class header
-	 * @param inheritedAttributeHeaderList the inherited attribute header list
-	 * @param inheritedData the inherited data
+	 * @param context the induction context, with the data and the row index
+	 * @param from the from
+	 * @param to the to
 	 * @param incomingAttribute the incoming attribute
 	 * @param incomingValue the incoming value
 	 * @param assignedLevel the assigned level
@@ -288,16 +377,198 @@ public class DecisionTree {
 	 * @param assignedParentId the assigned parent id
 	 * @return 1
 	 */	
-	public int branchWithID3(CategoricalType inheritedClassHeader, List<CategoricalType> inheritedAttributeHeaderList, List<int[]> inheritedData, int incomingAttribute, int incomingValue, int assignedLevel, List<Integer> usedAttr, int assignedId, int assignedParentId){
-		classHeader=inheritedClassHeader.getCopy();
-		attributeHeaderList.clear();
-		attributeHeaderList.addAll(inheritedAttributeHeaderList);
-		data=inheritedData;
+	public int branchWithID3(InductionContext context, int from, int to, int incomingAttribute, int incomingValue, int assignedLevel, List<Integer> usedAttr, int assignedId, int assignedParentId){
+		Dataset data=context.getData();
+		int rows[]=context.getRowIndex();
+		int inheritedClassCounts[]=new int[data.getClassHeader().getNumCategories()];
+		for (int i=from; i<to; i++){
+			inheritedClassCounts[data.getClassValue(rows[i])]++;
+		}
+		if (context.isParallel()){
+			context.getPool().invoke(new BranchTask(this, context, from, to, inheritedClassCounts, incomingAttribute, incomingValue, assignedLevel, usedAttr));
+		}
+		else{
+			branchWithID3(context, from, to, inheritedClassCounts, incomingAttribute, incomingValue, assignedLevel, usedAttr);
+		}
+		assignIds(assignedId, assignedParentId);
+		return 1;
+	}
+
+	/**
+	 * Function that assigns the ids of a tree once it is built: the given id for this node, and consecutive ids,
+	 * reserved as a block from idCount and assigned in pre-order, for its descendants. Thus, ids do not depend on
+	 * the order in which subtrees were built.
+	 *
+	 * @param assignedId the assigned id
+	 * @param assignedParentId the assigned parent id
+	 */
+	void assignIds(int assignedId, int assignedParentId){
+		id=assignedId;
+		parentId=assignedParentId;
+		int nextId=idCount.getAndAdd(getNumNodes()-1);
+		for (int i=0; i<descendants.size(); i++){
+			nextId=descendants.get(i).assignIdsInPreOrder(nextId, id);
+		}
+	}
+
+	/**
+	 * Recursive function that assigns ids, in pre-order, to a node and its descendants.
+	 *
+	 * @param firstId the id for this node
+	 * @param assignedParentId the assigned parent id
+	 * @return the next id to be assigned, after this subtree
+	 */
+	private int assignIdsInPreOrder(int firstId, int assignedParentId){
+		id=firstId;
+		parentId=assignedParentId;
+		int nextId=firstId+1;
+		for (int i=0; i<descendants.size(); i++){
+			nextId=descendants.get(i).assignIdsInPreOrder(nextId, id);
+		}
+		return nextId;
+	}
+
+	/**
+	 * Recursive function that returns the number of nodes of the tree.
+	 *
+	 * @return the number of nodes
+	 */
+	public int getNumNodes(){
+		int numNodes=1;
+		for (int i=0; i<descendants.size(); i++){
+			numNodes+=descendants.get(i).getNumNodes();
+		}
+		return numNodes;
+	}
+
+	/**
+	 * Gets the id.
+	 *
+	 * @return the id
+	 */
+	public int getId(){
+		return id;
+	}
+
+	/**
+	 * Gets the parent id.
+	 *
+	 * @return the parent id, -1 for the root
+	 */
+	public int getParentId(){
+		return parentId;
+	}
+
+	/**
+	 * Gets the level of the node, 0 for the root.
+	 *
+	 * @return the level
+	 */
+	public int getLevel(){
+		return level;
+	}
+
+	/**
+	 * Gets the attribute used for branching in this node.
+	 *
+	 * @return the attribute used, -1 if it is a leaf that never branched
+	 */
+	public int getAttributeUsed(){
+		return attributeUsed;
+	}
+
+	/**
+	 * Gets the value of the attribute of the parent that leads to this node.
+	 *
+	 * @return the incoming value index, -1 for the root
+	 */
+	public int getIncomingValueIndex(){
+		return incomingValueIndex;
+	}
+
+	/**
+	 * Gets the class assigned by this node, if it is a leaf.
+	 *
+	 * @return the output variable
+	 */
+	public int getOutputVariable(){
+		return outputVariable;
+	}
+
+	/**
+	 * Gets the number of immediate descendants of this node.
+	 *
+	 * @return the number of descendants
+	 */
+	public int getNumDescendants(){
+		return descendants.size();
+	}
+
+	/**
+	 * Recursive function in charge of branching a given node, following the ID3 algorithm.
+	 * The class counts of the node are passed down by the parent, which already has them in its contingency tables.
+	 * Ids are not assigned here, but once the whole tree is built.
+	 *
+	 * @param context the induction context, with the data and the row index
+	 * @param from the from
+	 * @param to the to
+	 * @param inheritedClassCounts the class counts of the rows in the node
+	 * @param incomingAttribute the incoming attribute
+	 * @param incomingValue the incoming value
+	 * @param assignedLevel the assigned level
+	 * @param usedAttr the used attr
+	 * @return 1
+	 */	
+	private int branchWithID3(InductionContext context, int from, int to, int[] inheritedClassCounts, int incomingAttribute, int incomingValue, int assignedLevel, List<Integer> usedAttr){
+		if (initializeNode(context.getData(), inheritedClassCounts, incomingAttribute, incomingValue, assignedLevel, usedAttr)){ //Then it is not a leaf...
+			NodeSplitEvent event=new NodeSplitEvent();
+			event.begin();
+			boolean candidates[]=getCandidates(usedAttr);
+			ContingencyTables tables=context.count(candidates, from, to); //Single pass over the rows, counting for all unused attributes at once.
+			selectAttribute(tables, candidates, context.getGainEvaluations());
+			event.commitSplit(this);
+			
+			//Now we create the values we will pass down.
+			List<Integer> usedAttr2= new ArrayList<Integer>();
+			usedAttr2.addAll(usedAttr);
+			usedAttr2.add(attributeUsed);
+			int bounds[]=context.partition(from, to, attributeUsed, tables.getValueCounts(attributeUsed)); //Here we leave contiguous the rows of each descendant (all instances where attribute used is of specific branching value)
+			if (context.isParallel() && (to-from)>=context.getParallelThreshold()){ //Large node: sibling subtrees are built as independent tasks
+				List<BranchTask> tasks=new ArrayList<BranchTask>();
+				for (int i=0; i<descendants.size(); i++){
+					tasks.add(new BranchTask(descendants.get(i), context, bounds[i], bounds[i+1], tables.getClassCounts(attributeUsed, i), attributeUsed, i, (level+1), usedAttr2));
+				}
+				ForkJoinTask.invokeAll(tasks);
+			}
+			else{
+				for (int i=0; i<descendants.size(); i++){
+					descendants.get(i).branchWithID3(context, bounds[i], bounds[i+1], tables.getClassCounts(attributeUsed, i), attributeUsed, i, (level+1), usedAttr2); //Here we branch
+				}
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * Function that initializes a node being built with ID3, and checks the two stopping conditions: if there are unused attributes
+	 * or all perfectly classified. If the node is a leaf, the learned output value is stored.
+	 *
+	 * @param data the data, used for its headers
+	 * @param inheritedClassCounts the class counts of the instances in the node
+	 * @param incomingAttribute the incoming attribute
+	 * @param incomingValue the incoming value
+	 * @param assignedLevel the assigned level
+	 * @param usedAttr the used attr
+	 * @return true, if the node must be branched
+	 */
+	boolean initializeNode(Dataset data, int[] inheritedClassCounts, int incomingAttribute, int incomingValue, int assignedLevel, List<Integer> usedAttr){
+		classHeader=data.getClassHeader();
+		attributeHeaderList=data.getAttributeHeaderList();
+		classCounts=inheritedClassCounts;
+		entropy=EntropyEngine.entropy(classCounts, 0, classHeader.getNumCategories());
 		incomingValueIndex=incomingValue;
 		incomingAttributeIndex=incomingAttribute;
 		level=assignedLevel;
-		parentId=assignedParentId;
-		id=assignedId;
 		descendants=new ArrayList<DecisionTree>();
 		
 		//First we check the two stopping conditions: if there are unused attributes or all perfectly classified
@@ -306,73 +577,123 @@ public class DecisionTree {
 		if (attributeHeaderList.size()>usedAttr.size()){
 			allAttributesAreUsed=false;
 		}
-		for (int i=0; i<data.size(); i++){
-			if (data.get(i)[attributeHeaderList.size()]!=data.get(0)[attributeHeaderList.size()]){
-				perfectlyClassified=false;
-				i=data.size();
+		int observedClasses=0;
+		for (int i=0; i<classCounts.length; i++){
+			if (classCounts[i]>0){
+				observedClasses++;
 			}
 		}
+		if (observedClasses>1){
+			perfectlyClassified=false;
+		}
 		if (!allAttributesAreUsed & !perfectlyClassified){ //Then it is not a leaf...
-			double gains[] =new double [attributeHeaderList.size()];
-			double tempMaxScore=-1;
-			int maxIndex=-1;
-			for (int i=0; i<attributeHeaderList.size(); i++){
-				boolean canUse=true;
-				for (int l=0; l<usedAttr.size(); l++){
-					if (usedAttr.get(l)==i){
-						canUse=false;
-					}
-				}
-				if (canUse){
-					gains[i]=informationGain(i);//Here we calculate the information gains for each unused attibute.
-					if (gains[i]>=tempMaxScore){ //And we select for branching the attribute with the maximum gain
-						maxIndex=i;
-						tempMaxScore=gains[i];
-					}
-				}
-			}
-			attributeUsed=maxIndex; //We store which attribute will be used.
-			
-			//Now we create the values we will pass down.
-			descendants.clear();
-			List<Integer> usedAttr2= new ArrayList<Integer>();
-			usedAttr2.addAll(usedAttr);
-			usedAttr2.add(attributeUsed);
-			for (int i=0; i<attributeHeaderList.get(attributeUsed).getNumCategories(); i++){ //We iterate over all new descendants...
-				List<CategoricalType> newAttributeHeaderList= new ArrayList<CategoricalType>();
-				newAttributeHeaderList.addAll(attributeHeaderList);  
-				newAttributeHeaderList.get(attributeUsed).use(); //Here we create an attributeHeaderList and mark the attribute the node used
-
-				List<int[]> newData=new ArrayList<int[]>();
-				DecisionTree son=new DecisionTree();
-				for (int j=0; j<data.size(); j++){
-					if (data.get(j)[attributeUsed]==i){
-						newData.add(data.get(j)); //Here we create the data that we will pass down (all instances where attribute used is of specific branching value)
-					}
-				}
-				descendants.add(son);//We add the descendant to the descendants list...
-				descendants.get(descendants.size()-1).branchWithID3(classHeader, newAttributeHeaderList, newData, attributeUsed, i, (level+1), usedAttr2, idCount++, id); //Here we branch
-			}
+			return true;
 		}
-		else{//It is a leaf
-			int casesByOutputValues[]=new int[classHeader.getNumCategories()];
-			Arrays.fill(casesByOutputValues, 0);
-			for (int i=0; i<data.size(); i++){
-				casesByOutputValues[data.get(i)[attributeHeaderList.size()]]++;
+		//It is a leaf
+		int tempMaxIndex=0;
+		int tempMaxCount=0;
+		for (int i=0; i<classHeader.getNumCategories(); i++){
+			if (classCounts[i]>=tempMaxCount){ //We store the output value observed to have more instances, this will be the output variable learned for the leaf.
+				tempMaxCount=classCounts[i];
+				tempMaxIndex=i;
 			}
-			int tempMaxIndex=0;
-			int tempMaxCount=0;
-			for (int i=0; i<classHeader.getNumCategories(); i++){
-				if (casesByOutputValues[i]>=tempMaxCount){ //We store the output value observed to have more instances, this will be the output variable learned for the leaf.
-					tempMaxCount=casesByOutputValues[i];
-					tempMaxIndex=i;
+		}
+		outputVariable=tempMaxIndex;
+		return false;
+	}
+
+	/**
+	 * Function that returns flags indicating, for each attribute, if it can still be used for branching.
+	 *
+	 * @param usedAttr the used attr
+	 * @return the candidates
+	 */
+	boolean[] getCandidates(List<Integer> usedAttr){
+		boolean candidates[]=new boolean[attributeHeaderList.size()];
+		for (int i=0; i<attributeHeaderList.size(); i++){
+			candidates[i]=!usedAttr.contains(i);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Function that selects, from the contingency tables of the instances in the node, the candidate attribute with the
+	 * maximum information gain, and creates one (not yet built) descendant for each of its values.
+	 *
+	 * @param tables the contingency tables
+	 * @param candidates the candidates
+	 * @param gainEvaluations the counter of information gains evaluated, of the engine building the tree
+	 * @return the attribute used
+	 */
+	int selectAttribute(ContingencyTables tables, boolean[] candidates, LongAdder gainEvaluations){
+		double nodeEntropy=tables.getEntropy();
+		double gains[] =new double [attributeHeaderList.size()];
+		double tempMaxScore=-1;
+		int maxIndex=-1;
+		int numGains=0;
+		for (int i=0; i<attributeHeaderList.size(); i++){
+			if (candidates[i]){
+				gains[i]=tables.informationGain(i, nodeEntropy);//Here we calculate the information gains for each unused attibute.
+				numGains++;
+				if (gains[i]>=tempMaxScore-GAIN_TOLERANCE){ //And we select for branching the attribute with the maximum gain (on ties, the last one)
+					maxIndex=i;
+					tempMaxScore=Math.max(tempMaxScore, gains[i]);
 				}
 			}
-			outputVariable=tempMaxIndex;
 		}
-		return 1;
+		gainEvaluations.add(numGains);
+		attributeUsed=maxIndex; //We store which attribute will be used.
+		attributeHeaderList.get(attributeUsed).use(); //We mark the attribute the node used
+		descendants.clear();
+		for (int i=0; i<attributeHeaderList.get(attributeUsed).getNumCategories(); i++){ //We iterate over all new descendants...
+			DecisionTree son=new DecisionTree();
+			descendants.add(son);//We add the descendant to the descendants list...
+		}
+		return attributeUsed;
+	}
+
+	/**
+	 * Gets a descendant.
+	 *
+	 * @param index the index of the descendant, which is the value of the attribute used that generates it
+	 * @return the descendant
+	 */
+	DecisionTree getDescendant(int index){
+		return descendants.get(index);
 	}
 	
+	/**
+	 * Function that adds a descendant, when a trained tree is read from a model file.
+	 *
+	 * @param descendant the descendant
+	 */
+	void addDescendant(DecisionTree descendant){
+		descendants.add(descendant);
+	}
+
+	/**
+	 * Function that returns views of all the nodes of the tree, in preorder (the root first), as in its XML.
+	 *
+	 * @return the node views
+	 */
+	public List<TreeNodeView> getNodeViews(){
+		List<TreeNodeView> views=new ArrayList<TreeNodeView>();
+		addNodeViews(views);
+		return views;
+	}
+
+	/**
+	 * Recursive function that adds the views of the nodes of the subtree, in preorder.
+	 *
+	 * @param views the views
+	 */
+	private void addNodeViews(List<TreeNodeView> views){
+		views.add(new TreeNodeView(this));
+		for (int i=0; i<descendants.size(); i++){
+			descendants.get(i).addNodeViews(views);
+		}
+	}
+
 	/**
 	 * Recursive function that returns the maximum level (or depth)
 	 * of the tree.
@@ -393,106 +714,85 @@ public class DecisionTree {
 	}
 	
 	/**
-	 * Recursive function that prints the tree to an XML.
+	 * Recursive function that prints the tree to an XML, through an XmlTreeWriter.
 	 *
 	 * @param writer the writer
 	 * @return the int
 	 */
 	public int printToXML(PrintWriter writer){//Prints the tree to XML, recursively. Receives as input the file opened for writing. 
-		if (this.isLeaf() && incomingAttributeIndex!=-1 ){//&& outputVariable!=-1){//Is a leaf
-			String auxString="";
-			for (int i=0; i<level; i++){
-				auxString+="	";
-			}
-			
-			String tabs=auxString;
-			auxString=tabs+"<node classes=\"";
-			for (int i=0; i<classHeader.getNumCategories();i++){
-				int auxVal=getNumInstancesInClass(i);
-				if (auxVal>0){
-					auxString+=classHeader.getCategory(i);
-					auxString+=":";
-					auxString+=auxVal;
-					if (i<classHeader.getNumCategories()-1)
-						auxString+=",";
-				}
-			}
-			auxString+="\" id=\""+(int)(id)+"\" parentid=\""+(parentId);
-			auxString+="\" level=\""+level;
-			auxString+="\" entropy=\"";
-			auxString+=String.format("%.3f", getEntropy());
-			auxString+="\" ";
-			auxString+="isLeaf=\"1\" ";
-			auxString+="attr=\"";
-			auxString+=attributeHeaderList.get(incomingAttributeIndex).getName()+"=";
-			auxString+=attributeHeaderList.get(incomingAttributeIndex).getCategory(incomingValueIndex)+"\">";
-			auxString+=classHeader.getCategory(outputVariable);
-			auxString+="</node>";
-			writer.println(auxString);
+		try {
+			new XmlTreeWriter(writer).write(this);
+		} catch (IOException e) {
+			e.printStackTrace(); //A PrintWriter does not throw, it records its errors
 		}
-		else{
-			if (incomingValueIndex!=-1){//Is not the root node.
-				String auxString="";
-				for (int i=0; i<level; i++){
-					auxString+="	";
-				}
-				String tabs=auxString;
-				auxString=tabs+"<node classes=\"";
-				for (int i=0; i<classHeader.getNumCategories();i++){
-					int auxVal=getNumInstancesInClass(i);
-					if (auxVal>0){
-						auxString+=classHeader.getCategory(i);
-						auxString+=":";
-						auxString+=auxVal;
-						if (i<classHeader.getNumCategories()-1)
-							auxString+=",";
-					}
-				}
-				auxString+="\" id=\""+(int)(id)+"\" parentid=\""+(parentId); 
-				auxString+="\" level=\""+level;
-				auxString+="\" entropy=\"";
-				auxString+=String.format("%.3f", getEntropy());
-				auxString+="\" ";
-				auxString+="isLeaf=\"0\" ";
-				auxString+="attr=\"";
-				auxString+=attributeHeaderList.get(incomingAttributeIndex).getName()+"=";
-				auxString+=attributeHeaderList.get(incomingAttributeIndex).getCategory(incomingValueIndex)+"\">";
-				writer.println(auxString);
-		}
-			else{//Is the root node
-				writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
-				String auxString="<tree classes=\"";
-				for (int i=0; i<classHeader.getNumCategories();i++){
-					auxString+=classHeader.getCategory(i);
-					auxString+=":";
-					auxString+=getNumInstancesInClass(i);
-					if (i<classHeader.getNumCategories()-1)
-						auxString+=",";
-				}
-				auxString+="\" id=\""+id+"\" parentid=\""+parentId;
-				auxString+="\" level=\""+level;
-				auxString+="\" entropy=\"";
-				auxString+=String.format("%.3f", getEntropy());
-				auxString+="\">";
-				writer.println(auxString);
-			}
-			for (int i=0; i<descendants.size(); i++){
-				descendants.get(i).printToXML(writer); //Print descendants recursively
-			}
-			if (incomingValueIndex!=-1){//Close nodes that are not leaves.
-				String auxString="";
-				for (int i=0; i<level; i++){
-					auxString+="	";
-				}
-				String tabs=auxString;
-				auxString=tabs+"</node>";
-				writer.println(auxString);
+		return 1;
+	}
 
-			}
-			else{//Close root
-				writer.println("</tree>");
-			}
+	/** BranchTask class
+	 *  <p>
+	 *  Fork/join task that branches a node with ID3, used to build sibling subtrees in parallel.
+	 * */
+	@SuppressWarnings("serial")
+	private static class BranchTask extends RecursiveAction {
+
+		/** The node. */
+		private DecisionTree node;
+
+		/** The context. */
+		private InductionContext context;
+
+		/** The from. */
+		private int from;
+
+		/** The to. */
+		private int to;
+
+		/** The class counts. */
+		private int[] classCounts;
+
+		/** The incoming attribute. */
+		private int incomingAttribute;
+
+		/** The incoming value. */
+		private int incomingValue;
+
+		/** The level. */
+		private int level;
+
+		/** The used attr. */
+		private List<Integer> usedAttr;
+
+		/**
+		 * Instantiates a new branch task.
+		 *
+		 * @param node the node to branch
+		 * @param context the context
+		 * @param from the from
+		 * @param to the to
+		 * @param classCounts the class counts
+		 * @param incomingAttribute the incoming attribute
+		 * @param incomingValue the incoming value
+		 * @param level the level
+		 * @param usedAttr the used attr
+		 */
+		BranchTask(DecisionTree node, InductionContext context, int from, int to, int[] classCounts, int incomingAttribute, int incomingValue, int level, List<Integer> usedAttr){
+			this.node=node;
+			this.context=context;
+			this.from=from;
+			this.to=to;
+			this.classCounts=classCounts;
+			this.incomingAttribute=incomingAttribute;
+			this.incomingValue=incomingValue;
+			this.level=level;
+			this.usedAttr=usedAttr;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute(){
+			node.branchWithID3(context, from, to, classCounts, incomingAttribute, incomingValue, level, usedAttr);
 		}
-		return 1;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package ml.model;
+
+/** EntropyEngine class
+ *  <p>
+ *  Calculates entropies and information gains from integer counts, without calling Math.log on the hot path.
+ *  <p>
+ *  Since p*log(p) = (c/N)*log(c/N), the entropy of counts c1..cK over N instances, in base K (the number of classes), is
+ *  (N*log2(N) - sum of ci*log2(ci)) / (N*log2(K)). This class keeps a table of n*log2(n), which grows lazily (doubling) up to
+ *  MAX_TABLE_SIZE entries. Beyond that size values are computed directly.
+ *  <p>
+ *  The table is shared by all trees, and it is safe to use from several threads: a grown table replaces the previous one,
+ *  and readers always see a complete table.
+ *
+ * */
+public class EntropyEngine {
+
+	/** The initial table size. */
+	private static final int INITIAL_TABLE_SIZE=1<<12;
+
+	/** The max table size. */
+	private static final int MAX_TABLE_SIZE=1<<22;
+
+	/** Natural logarithm of 2. */
+	private static final double LN_2=Math.log(2);
+
+	/** The table. */
+	private static volatile double[] table=buildTable(new double[0], INITIAL_TABLE_SIZE); //Position n holds n*log2(n), with 0*log2(0)=0.
+
+	/**Private constructor function, to defeat instantiation. */
+	private EntropyEngine(){
+		// Exists only to defeat instantiation.
+	}
+
+	/**
+	 * Function that returns n*log2(n), with 0 for n=0.
+	 *
+	 * @param n the n
+	 * @return n*log2(n)
+	 */
+	public static double nLogN(int n){
+		double currentTable[]=table;
+		if (n<currentTable.length){
+			return currentTable[n];
+		}
+		if (n<MAX_TABLE_SIZE){
+			return grow(n)[n];
+		}
+		return n*(Math.log(n)/LN_2);
+	}
+
+	/**
+	 * Function that returns the entropy, in base numClasses, of numClasses counts stored from a position of an array.
+	 *
+	 * @param counts the array with the counts
+	 * @param offset the position of the count of the first class
+	 * @param numClasses the number of classes
+	 * @return the entropy
+	 */
+	public static double entropy(int[] counts, int offset, int numClasses){
+		int total=0;
+		double sumOfNLogN=0;
+		for (int j=0; j<numClasses; j++){
+			total+=counts[offset+j];
+			sumOfNLogN+=nLogN(counts[offset+j]);
+		}
+		if (total==0 || numClasses<2){
+			return 0;
+		}
+		return (nLogN(total)-sumOfNLogN)/(total*log2(numClasses));
+	}
+
+	/**
+	 * Function that returns the weighted entropy of the partitions induced by an attribute, multiplied by the number of instances
+	 * and by log2(numClasses), that is, the sum over the values of the attribute of (nv*log2(nv) - sum of cvk*log2(cvk)).
+	 * The gain of the attribute is then the entropy of the node minus this term divided by (N*log2(numClasses)).
+	 *
+	 * @param table the flat value x class table, position value*numClasses+class
+	 * @param numValues the number of values of the attribute
+	 * @param numClasses the number of classes
+	 * @return the split term
+	 */
+	public static double splitTerm(int[] table, int numValues, int numClasses){
+		double result=0;
+		for (int i=0; i<numValues; i++){
+			int casesByAttributeValue=0;
+			double sumOfNLogN=0;
+			for (int j=0; j<numClasses; j++){
+				int count=table[i*numClasses+j];
+				casesByAttributeValue+=count;
+				sumOfNLogN+=nLogN(count);
+			}
+			result+=nLogN(casesByAttributeValue)-sumOfNLogN;
+		}
+		return result;
+	}
+
+	/**
+	 * Function that returns log2(n), for n&gt;0, using the table.
+	 *
+	 * @param n the n
+	 * @return log2(n)
+	 */
+	public static double log2(int n){
+		return nLogN(n)/n;
+	}
+
+	/**
+	 * Function that grows the table so that it includes position n.
+	 *
+	 * @param n the n
+	 * @return the grown table
+	 */
+	private static synchronized double[] grow(int n){
+		double currentTable[]=table;
+		if (n<currentTable.length){
+			return currentTable; //Already grown by another thread
+		}
+		int newSize=currentTable.length;
+		while (newSize<=n){
+			newSize*=2;
+		}
+		table=buildTable(currentTable, Math.min(newSize, MAX_TABLE_SIZE));
+		return table;
+	}
+
+	/**
+	 * Function that builds a table of n*log2(n), reusing the values of a smaller table.
+	 *
+	 * @param previousTable the previous table
+	 * @param size the size
+	 * @return the table
+	 */
+	private static double[] buildTable(double[] previousTable, int size){
+		double newTable[]=new double[size];
+		System.arraycopy(previousTable, 0, newTable, 0, previousTable.length);
+		for (int n=Math.max(previousTable.length, 1); n<size; n++){
+			newTable[n]=n*(Math.log(n)/LN_2);
+		}
+		return newTable;
+	}
+}
@@ -0,0 +1,230 @@
+package ml.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/** InductionContext class
+ *  <p>
+ *  State shared by all the nodes while a decision tree is being built with ID3.
+ *  <p>
+ *  It holds the training dataset and one permutation of its row indexes. Each node works over a
+ *  [from, to) slice of that permutation, and when the node branches its slice is partitioned in place,
+ *  so that the instances of each descendant end up contiguous, in the same relative order. The scratch
+ *  array supports that partitioning, and since the slices of different nodes never overlap, it can also be shared.
+ *  <p>
+ *  Optionally, it holds a ForkJoinPool, in which case nodes with at least parallelThreshold rows build the subtrees
+ *  of their descendants as independent tasks. Since those subtrees work over disjoint slices, no locking is needed.
+ *  In that case, nodes with more than gainBlockSize rows also count their contingency tables in parallel, by blocks
+ *  of rows whose partial tables are then merged. Counts are integers, so the result does not depend on the order of the merges.
+ *
+ * */
+public class InductionContext {
+
+	/** The data. */
+	private Dataset data; //Training data
+
+	/** The row index. */
+	private int[] rowIndex; //Permutation of the rows of the data, partitioned as the tree branches.
+
+	/** The scratch. */
+	private int[] scratch; //Auxiliary array for partitioning.
+
+	/** The pool. */
+	private ForkJoinPool pool=null; //Pool for parallel induction, null for sequential induction.
+
+	/** The parallel threshold. */
+	private int parallelThreshold=Integer.MAX_VALUE; //Minimum number of rows of a node for building its subtrees in parallel.
+
+	/** The gain block size. */
+	private int gainBlockSize=Integer.MAX_VALUE; //Rows per block when counting the contingency tables of a node in parallel.
+
+	/** The gain evaluations. */
+	private final LongAdder gainEvaluations=new LongAdder(); //Information gains evaluated, by all the threads building the tree.
+
+	/**
+	 * Instantiates a new induction context over all the rows of a dataset.
+	 *
+	 * @param data the data
+	 */
+	public InductionContext(Dataset data){
+		this.data=data;
+		rowIndex=new int[data.getNumRows()];
+		for (int i=0; i<rowIndex.length; i++){
+			rowIndex[i]=i;
+		}
+		scratch=new int[rowIndex.length];
+	}
+
+	/**
+	 * Instantiates a new induction context over all the rows of a dataset, for parallel induction.
+	 *
+	 * @param data the data
+	 * @param pool the pool where subtrees are built, null for sequential induction
+	 * @param parallelThreshold the minimum number of rows of a node for building its subtrees in parallel
+	 * @param gainBlockSize the rows per block when counting the contingency tables of a node in parallel
+	 */
+	public InductionContext(Dataset data, ForkJoinPool pool, int parallelThreshold, int gainBlockSize){
+		this(data);
+		this.pool=pool;
+		this.parallelThreshold=parallelThreshold;
+		this.gainBlockSize=Math.max(gainBlockSize, 1);
+	}
+
+	/**
+	 * Checks if the induction is parallel.
+	 *
+	 * @return true, if there is a pool for building subtrees
+	 */
+	public boolean isParallel(){
+		return pool!=null;
+	}
+
+	/**
+	 * Gets the pool.
+	 *
+	 * @return the pool
+	 */
+	public ForkJoinPool getPool(){
+		return pool;
+	}
+
+	/**
+	 * Gets the counter of the information gains evaluated while building the tree.
+	 *
+	 * @return the gain evaluations
+	 */
+	public LongAdder getGainEvaluations(){
+		return gainEvaluations;
+	}
+
+	/**
+	 * Gets the parallel threshold.
+	 *
+	 * @return the parallel threshold
+	 */
+	public int getParallelThreshold(){
+		return parallelThreshold;
+	}
+
+	/**
+	 * Function that builds the contingency tables of the candidate attributes for the rows in the slice [from, to).
+	 * In parallel induction, slices with more than gainBlockSize rows are counted by blocks in the pool.
+	 *
+	 * @param candidates flags indicating, for each attribute, if its table must be built
+	 * @param from the from
+	 * @param to the to
+	 * @return the contingency tables
+	 */
+	public ContingencyTables count(boolean[] candidates, int from, int to){
+		if (pool!=null && to-from>gainBlockSize){
+			return new CountTask(candidates, from, to).invoke();
+		}
+		ContingencyTables tables=new ContingencyTables(data, candidates);
+		tables.add(data, rowIndex, from, to);
+		return tables;
+	}
+
+	/**
+	 * Gets the data.
+	 *
+	 * @return the data
+	 */
+	public Dataset getData(){
+		return data;
+	}
+
+	/**
+	 * Gets the row index.
+	 *
+	 * @return the row index
+	 */
+	public int[] getRowIndex(){
+		return rowIndex;
+	}
+
+	/**
+	 * Function that partitions, in place and keeping the relative order, the slice [from, to) of the row index
+	 * by the values of an attribute (counting-sort style). After calling it, the rows with value v are in
+	 * [bounds[v], bounds[v+1]).
+	 *
+	 * @param from the from
+	 * @param to the to
+	 * @param attributeIndex the attribute index
+	 * @param valueCounts the number of rows in the slice with each value of the attribute
+	 * @return the bounds of the slice of each value, of size numCategories+1
+	 */
+	public int[] partition(int from, int to, int attributeIndex, int[] valueCounts){
+		int bounds[]=new int[valueCounts.length+1];
+		int next[]=new int[valueCounts.length];
+		bounds[0]=from;
+		for (int i=0; i<valueCounts.length; i++){
+			next[i]=bounds[i];
+			bounds[i+1]=bounds[i]+valueCounts[i];
+		}
+		if (data.isByteColumn(attributeIndex)){
+			byte column[]=data.getByteColumn(attributeIndex);
+			for (int r=from; r<to; r++){
+				scratch[next[column[rowIndex[r]]&0xFF]++]=rowIndex[r];
+			}
+		}
+		else{
+			short column[]=data.getShortColumn(attributeIndex);
+			for (int r=from; r<to; r++){
+				scratch[next[column[rowIndex[r]]&0xFFFF]++]=rowIndex[r];
+			}
+		}
+		System.arraycopy(scratch, from, rowIndex, from, to-from);
+		return bounds;
+	}
+
+	/** CountTask class
+	 *  <p>
+	 *  Fork/join task that counts the contingency tables of a slice of rows, halving it until
+	 *  blocks have at most gainBlockSize rows, and merging the partial tables.
+	 * */
+	@SuppressWarnings("serial")
+	private class CountTask extends RecursiveTask<ContingencyTables> {
+
+		/** The candidates. */
+		private boolean[] candidates;
+
+		/** The from. */
+		private int from;
+
+		/** The to. */
+		private int to;
+
+		/**
+		 * Instantiates a new count task.
+		 *
+		 * @param candidates the candidates
+		 * @param from the from
+		 * @param to the to
+		 */
+		CountTask(boolean[] candidates, int from, int to){
+			this.candidates=candidates;
+			this.from=from;
+			this.to=to;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected ContingencyTables compute(){
+			if (to-from<=gainBlockSize){
+				ContingencyTables tables=new ContingencyTables(data, candidates);
+				tables.add(data, rowIndex, from, to);
+				return tables;
+			}
+			int middle=(from+to)>>>1;
+			CountTask left=new CountTask(candidates, from, middle);
+			CountTask right=new CountTask(candidates, middle, to);
+			right.fork();
+			ContingencyTables tables=left.compute();
+			tables.merge(right.join());
+			return tables;
+		}
+	}
+}
\ No newline at end of file
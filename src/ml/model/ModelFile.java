@@ -0,0 +1,453 @@
+package ml.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/** ModelFile class
+ *  <p>
+ *  Binary file of a trained decision tree, which is read by memory-mapping it. The classifier of a model file reads its nodes
+ *  directly from the mapping, so loading it copies nothing to the heap, and processes scoring with the same file share its pages.
+ *  <p>
+ *  FORMAT (big-endian):
+ *  <p>
+ *  int magic, int version,
+ *  the class header and then the int number of attributes followed by each attribute header, where each header is
+ *  a string (name), an int (number of categories) and the strings of its categories, and a string is an int length followed by UTF-8 bytes,
+ *  int number of nodes of the compiled tree, int number of nodes of the tree, int number of classes, padding up to a multiple of 8 bytes,
+ *  the arrays of the CompiledTree of the tree (attribute, output, child base and number of values, each with an int per node),
+ *  and then the nodes of the tree in preorder, each as its id, parent id, level, attribute used, incoming attribute index,
+ *  incoming value index, output variable and number of descendants (ints), its entropy (double) and its class counts (ints).
+ *  <p>
+ *  The tree section allows rebuilding the DecisionTree, with the same ids and counts, for printing, drawing or pruning it.
+ *  A file is written to a temporary file that is then moved into place, so that processes mapping it never see it half written.
+ *
+ * */
+public class ModelFile {
+
+	/** The magic number (ID3M). */
+	private static final int MAGIC=0x4944334D;
+
+	/** The version. */
+	private static final int VERSION=1;
+
+	/** The class header. */
+	private CategoricalType classHeader;
+
+	/** The attribute header list. */
+	private List<CategoricalType> attributeHeaderList;
+
+	/** The num slots. */
+	private int numSlots; //Nodes of the compiled tree.
+
+	/** The num nodes. */
+	private int numNodes; //Nodes of the tree.
+
+	/** The num classes. */
+	private int numClasses;
+
+	/** The compiled. */
+	private IntBuffer compiled; //Mapped arrays of the compiled tree, one after the other.
+
+	/** The nodes. */
+	private ByteBuffer nodes; //Mapped nodes of the tree, in preorder.
+
+	/**
+	 * Instantiates a new model file, from its mapping.
+	 *
+	 * @param buffer the mapped file
+	 * @throws IOException Signals that the file is not a valid model file.
+	 */
+	private ModelFile(ByteBuffer buffer) throws IOException{
+		if (buffer.getInt()!=MAGIC){
+			throw new IOException("Not a model file");
+		}
+		int version=buffer.getInt();
+		if (version!=VERSION){
+			throw new IOException("Unsupported model file version "+version);
+		}
+		classHeader=readHeader(buffer);
+		int numAttributes=readCount(buffer, 4);
+		attributeHeaderList=new ArrayList<CategoricalType>();
+		for (int i=0; i<numAttributes; i++){
+			attributeHeaderList.add(readHeader(buffer));
+		}
+		numSlots=buffer.getInt();
+		numNodes=buffer.getInt();
+		numClasses=buffer.getInt();
+		if (numSlots<1 || numNodes<1 || numClasses<1 || numClasses!=classHeader.getNumCategories()){
+			throw new IOException("Corrupt model file");
+		}
+		buffer.position(align(buffer.position()));
+		if (4L*4*numSlots>buffer.remaining()){
+			throw new IOException("Corrupt model file");
+		}
+		ByteBuffer section=buffer.slice();
+		section.limit(4*4*numSlots);
+		compiled=section.asIntBuffer();
+		buffer.position(buffer.position()+4*4*numSlots);
+		nodes=buffer.slice();
+		if (nodes.remaining()!=(long)numNodes*nodeSize(numClasses)){
+			throw new IOException("Corrupt model file");
+		}
+		checkCompiledTree();
+	}
+
+	/**
+	 * Function that checks, once, that the classifier can only follow valid nodes: every attribute tested is an attribute of the file,
+	 * the children of every node are after it and inside the compiled tree (so classifying always ends), and every class is a class of the file.
+	 *
+	 * @throws IOException Signals that the compiled tree is not valid.
+	 */
+	private void checkCompiledTree() throws IOException{
+		int numAttributes=attributeHeaderList.size();
+		for (int n=0; n<numSlots; n++){
+			int attr=compiled.get(n);
+			if (attr<0){
+				int output=compiled.get(numSlots+n);
+				if (attr!=-1 || output<0 || output>=numClasses){
+					throw new IOException("Corrupt model file");
+				}
+			}
+			else{
+				long childBase=compiled.get(2*numSlots+n);
+				long numValues=compiled.get(3*numSlots+n);
+				if (attr>=numAttributes || numValues<0 || childBase<=n || childBase+numValues>numSlots){
+					throw new IOException("Corrupt model file");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Function that saves a trained tree to a model file.
+	 *
+	 * @param tree the root of the tree
+	 * @param file the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void save(DecisionTree tree, String file) throws IOException{
+		File modelFile=new File(file);
+		Path tempFile=Files.createTempFile(modelFile.getAbsoluteFile().getParentFile().toPath(), modelFile.getName(), ".tmp");
+		try {
+			DataOutputStream output=new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 1<<16));
+			try {
+				CompiledTree compiledTree=CompiledTree.compile(tree);
+				CategoricalType classHeader=tree.getClassHeader();
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				writeHeader(output, classHeader);
+				output.writeInt(tree.getAttributeHeaderList().size());
+				for (int i=0; i<tree.getAttributeHeaderList().size(); i++){
+					writeHeader(output, tree.getAttributeHeaderList().get(i));
+				}
+				output.writeInt(compiledTree.getNumNodes());
+				output.writeInt(tree.getNumNodes());
+				output.writeInt(classHeader.getNumCategories());
+				while (output.size()!=align(output.size())){
+					output.writeByte(0);
+				}
+				compiledTree.writeTo(output);
+				writeNode(output, tree, classHeader.getNumCategories());
+			} finally {
+				output.close();
+			}
+			Files.move(tempFile, modelFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Function that loads a model file, by memory-mapping it.
+	 *
+	 * @param file the file
+	 * @return the model file
+	 * @throws IOException Signals that an I/O exception has occurred, or that the file is not a valid model file.
+	 */
+	public static ModelFile load(String file) throws IOException{
+		FileChannel channel=FileChannel.open(new File(file).toPath(), StandardOpenOption.READ);
+		try {
+			long size=channel.size();
+			if (size>Integer.MAX_VALUE){
+				throw new IOException("Model file too large: "+file);
+			}
+			return new ModelFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, size)); //The mapping stays valid once the channel is closed
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Corrupt model file: "+file, e);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Gets the class header.
+	 *
+	 * @return the class header
+	 */
+	public CategoricalType getClassHeader(){
+		return classHeader;
+	}
+
+	/**
+	 * Gets the attribute header list.
+	 *
+	 * @return the attribute header list
+	 */
+	public List<CategoricalType> getAttributeHeaderList(){
+		return attributeHeaderList;
+	}
+
+	/**
+	 * Gets the number of nodes of the tree.
+	 *
+	 * @return the number of nodes
+	 */
+	public int getNumNodes(){
+		return numNodes;
+	}
+
+	/**
+	 * Function that returns a classifier reading the nodes of the compiled tree directly from the mapped file.
+	 * It classifies as the CompiledTree of the saved tree, and can be used by many threads at once.
+	 *
+	 * @return the classifier
+	 */
+	public Classifier getClassifier(){
+		final IntBuffer arrays=compiled.duplicate();
+		final int outputBase=numSlots;
+		final int childBase=2*numSlots;
+		final int numValuesBase=3*numSlots;
+		return new Classifier(){
+			@Override
+			public int classify(int[] tuple){
+				int node=0;
+				int attr;
+				while ((attr=arrays.get(node))>=0){
+					int value=tuple[attr];
+					if (value<0 || value>=arrays.get(numValuesBase+node)){
+						return 0;
+					}
+					node=arrays.get(childBase+node)+value;
+				}
+				return arrays.get(outputBase+node);
+			}
+		};
+	}
+
+	/**
+	 * Function that rebuilds the saved tree, with the same ids, class counts and entropies.
+	 *
+	 * @return the root of the tree
+	 * @throws IOException Signals that the nodes of the file do not form a tree.
+	 */
+	public DecisionTree getTree() throws IOException{
+		ByteBuffer buffer=nodes.duplicate();
+		DecisionTree path[]=new DecisionTree[numNodes]; //Nodes from the root to the last one read which still lacks descendants
+		int pendingDescendants[]=new int[numNodes];
+		int depth=0;
+		DecisionTree root=null;
+		for (int n=0; n<numNodes; n++){
+			int id=buffer.getInt();
+			int parentId=buffer.getInt();
+			int level=buffer.getInt();
+			int attributeUsed=buffer.getInt();
+			int incomingAttributeIndex=buffer.getInt();
+			int incomingValueIndex=buffer.getInt();
+			int outputVariable=buffer.getInt();
+			int numDescendants=buffer.getInt();
+			double entropy=buffer.getDouble();
+			if (!validNode(attributeUsed, incomingAttributeIndex, incomingValueIndex, outputVariable, numDescendants)){
+				throw new IOException("Corrupt model file");
+			}
+			int classCounts[]=new int[numClasses];
+			for (int i=0; i<numClasses; i++){
+				classCounts[i]=buffer.getInt();
+			}
+			DecisionTree node=new DecisionTree(attributeHeaderList, classHeader, classCounts, entropy, id, parentId, level,
+					attributeUsed, incomingAttributeIndex, incomingValueIndex, outputVariable);
+			while (depth>0 && pendingDescendants[depth-1]<=0){
+				depth--;
+			}
+			if (level!=depth){ //The level is the depth of the node in the tree
+				throw new IOException("Corrupt model file");
+			}
+			if (depth>0){
+				path[depth-1].addDescendant(node);
+				pendingDescendants[depth-1]--;
+			}
+			else if (root==null){
+				root=node;
+			}
+			else{
+				throw new IOException("Corrupt model file");
+			}
+			path[depth]=node;
+			pendingDescendants[depth]=numDescendants;
+			depth++;
+		}
+		for (int d=0; d<depth; d++){
+			if (pendingDescendants[d]>0){
+				throw new IOException("Corrupt model file");
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Function that checks that the indexes of a node of the tree section refer to attributes, categories and classes of the file.
+	 *
+	 * @param attributeUsed the attribute used, or -1
+	 * @param incomingAttributeIndex the incoming attribute index, or -1
+	 * @param incomingValueIndex the incoming value index, or -1
+	 * @param outputVariable the output variable, or -1
+	 * @param numDescendants the number of descendants
+	 * @return true, if the node is valid
+	 */
+	private boolean validNode(int attributeUsed, int incomingAttributeIndex, int incomingValueIndex, int outputVariable, int numDescendants){
+		int numAttributes=attributeHeaderList.size();
+		if (attributeUsed<-1 || attributeUsed>=numAttributes || incomingAttributeIndex<-1 || incomingAttributeIndex>=numAttributes){
+			return false;
+		}
+		if (incomingValueIndex<-1 || (incomingAttributeIndex<0)!=(incomingValueIndex<0)
+				|| (incomingAttributeIndex>=0 && incomingValueIndex>=attributeHeaderList.get(incomingAttributeIndex).getNumCategories())){
+			return false;
+		}
+		if (numDescendants==0 && incomingAttributeIndex>=0 && outputVariable<0){ //Leaves below the root have a class
+			return false;
+		}
+		return outputVariable>=-1 && outputVariable<numClasses && numDescendants>=0 && numDescendants<numNodes;
+	}
+
+	/**
+	 * Recursive function that writes the nodes of a subtree in preorder.
+	 *
+	 * @param output the output
+	 * @param node the node
+	 * @param numClasses the number of classes
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void writeNode(DataOutputStream output, DecisionTree node, int numClasses) throws IOException{
+		output.writeInt(node.getId());
+		output.writeInt(node.getParentId());
+		output.writeInt(node.getLevel());
+		output.writeInt(node.getAttributeUsed());
+		output.writeInt(node.getIncomingAttributeIndex());
+		output.writeInt(node.getIncomingValueIndex());
+		output.writeInt(node.getOutputVariable());
+		output.writeInt(node.getNumDescendants());
+		output.writeDouble(node.getEntropy());
+		for (int i=0; i<numClasses; i++){
+			output.writeInt(node.getNumInstancesInClass(i));
+		}
+		for (int i=0; i<node.getNumDescendants(); i++){
+			writeNode(output, node.getDescendant(i), numClasses);
+		}
+	}
+
+	/**
+	 * Function that returns the number of bytes of a node in the tree section.
+	 *
+	 * @param numClasses the number of classes
+	 * @return the node size
+	 */
+	private static long nodeSize(int numClasses){
+		return 8*4+8+4L*numClasses;
+	}
+
+	/**
+	 * Function that rounds a position up to a multiple of 8.
+	 *
+	 * @param position the position
+	 * @return the aligned position
+	 */
+	private static int align(int position){
+		return (position+7)&~7;
+	}
+
+	/**
+	 * Function that writes a CategoricalType.
+	 *
+	 * @param output the output
+	 * @param header the header
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void writeHeader(DataOutputStream output, CategoricalType header) throws IOException{
+		writeString(output, header.getName());
+		output.writeInt(header.getNumCategories());
+		for (int i=0; i<header.getNumCategories(); i++){
+			writeString(output, header.getCategory(i));
+		}
+	}
+
+	/**
+	 * Function that reads a CategoricalType.
+	 *
+	 * @param buffer the buffer
+	 * @return the categorical type
+	 * @throws IOException Signals that the header is not valid.
+	 */
+	private static CategoricalType readHeader(ByteBuffer buffer) throws IOException{
+		CategoricalType header=new CategoricalType();
+		header.setName(readString(buffer));
+		int numCategories=readCount(buffer, 4);
+		for (int i=0; i<numCategories; i++){
+			header.addCategory(readString(buffer));
+		}
+		return header;
+	}
+
+	/**
+	 * Function that reads a count of items, checking it before anything is allocated for them.
+	 *
+	 * @param buffer the buffer
+	 * @param minItemSize the minimum number of bytes of each item
+	 * @return the count
+	 * @throws IOException Signals that the count is negative, or that the rest of the file cannot hold so many items.
+	 */
+	private static int readCount(ByteBuffer buffer, int minItemSize) throws IOException{
+		int count=buffer.getInt();
+		if (count<0 || (long)count*minItemSize>buffer.remaining()){
+			throw new IOException("Corrupt model file");
+		}
+		return count;
+	}
+
+	/**
+	 * Function that writes a string, as its length followed by its UTF-8 bytes.
+	 *
+	 * @param output the output
+	 * @param value the value
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void writeString(DataOutputStream output, String value) throws IOException{
+		byte bytes[]=value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	/**
+	 * Function that reads a string, written as its length followed by its UTF-8 bytes.
+	 *
+	 * @param buffer the buffer
+	 * @return the string
+	 * @throws IOException Signals that the length is not valid.
+	 */
+	private static String readString(ByteBuffer buffer) throws IOException{
+		byte bytes[]=new byte[readCount(buffer, 1)];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,59 @@
+package ml.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** NodeSplitEvent class
+ *  <p>
+ *  Flight Recorder event of the split of a node while learning a tree with ID3: from the start of the counting for the information
+ *  gains to the selection of the attribute. It is disabled by default; a disabled event is neither timed nor recorded.
+ *
+ * */
+@Name("ml.id3.NodeSplit")
+@Label("Node Split")
+@Category("ID3")
+@Description("Counting and attribute selection for a node of a tree learned with ID3")
+@Enabled(false)
+@StackTrace(false)
+class NodeSplitEvent extends Event {
+
+	/** The level. */
+	@Label("Level")
+	int level;
+
+	/** The rows. */
+	@Label("Rows")
+	@Description("Training instances in the node")
+	int rows;
+
+	/** The candidates. */
+	@Label("Candidate Attributes")
+	int candidates;
+
+	/** The attribute. */
+	@Label("Attribute")
+	@Description("Attribute selected for the split")
+	String attribute;
+
+	/**
+	 * Function that records the event, if it is enabled, once the attribute of the node has been selected.
+	 *
+	 * @param node the node
+	 */
+	void commitSplit(DecisionTree node){
+		if (shouldCommit()){
+			level=node.getLevel();
+			for (int i=0; i<node.getClassHeader().getNumCategories(); i++){
+				rows+=node.getNumInstancesInClass(i);
+			}
+			candidates=node.getAttributeHeaderList().size()-node.getLevel(); //One attribute is used in each level above
+			attribute=node.getAttributeHeaderList().get(node.getAttributeUsed()).getName();
+			commit();
+		}
+	}
+}
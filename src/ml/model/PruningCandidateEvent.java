@@ -0,0 +1,37 @@
+package ml.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** PruningCandidateEvent class
+ *  <p>
+ *  Flight Recorder event of the evaluation of a node as a candidate to be collapsed in reduced error pruning.
+ *  It is disabled by default, and when disabled it is not even created.
+ *
+ * */
+@Name("ml.id3.PruningCandidate")
+@Label("Pruning Candidate")
+@Category("ID3")
+@Description("Evaluation of a node as a candidate for reduced error pruning")
+@Enabled(false)
+@StackTrace(false)
+class PruningCandidateEvent extends Event {
+
+	/** The node id. */
+	@Label("Node Id")
+	int nodeId;
+
+	/** The level. */
+	@Label("Level")
+	int level;
+
+	/** The gain. */
+	@Label("Gain")
+	@Description("Validation instances correctly classified more if the node is collapsed")
+	int gain;
+}
@@ -0,0 +1,42 @@
+package ml.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** PruningRoundEvent class
+ *  <p>
+ *  Flight Recorder event of a round of reduced error pruning, in which a node is collapsed into a leaf.
+ *  It is disabled by default.
+ *
+ * */
+@Name("ml.id3.PruningRound")
+@Label("Pruning Round")
+@Category("ID3")
+@Description("Collapse of a node in a round of reduced error pruning")
+@Enabled(false)
+@StackTrace(false)
+class PruningRoundEvent extends Event {
+
+	/** The step. */
+	@Label("Step")
+	int step;
+
+	/** The node id. */
+	@Label("Node Id")
+	int nodeId;
+
+	/** The candidates evaluated. */
+	@Label("Candidates Evaluated")
+	@Description("Ancestors of the node whose gain was evaluated again")
+	int candidatesEvaluated;
+
+	/** The num correct. */
+	@Label("Correctly Classified")
+	@Description("Validation instances correctly classified after the collapse")
+	int numCorrect;
+}
@@ -0,0 +1,106 @@
+package ml.model;
+
+import java.util.List;
+
+/** PruningTrajectory class
+ *  <p>
+ *  Record of a reduced error pruning: the ids of the nodes collapsed, in order, and the number of validation instances correctly
+ *  classified after each collapse. Step 0 is the original tree, and step k the tree with the first k nodes collapsed.
+ *  <p>
+ *  Once recorded, any step can be materialized from the original tree, forwards or backwards, by collapsing only the nodes of
+ *  the trajectory up to that step, without pruning again. Trees are built with persistent copies, which share the untouched subtrees
+ *  of the original tree, so the original tree must not be modified (with deleteNode) afterwards.
+ *
+ * */
+public class PruningTrajectory {
+
+	/** The original tree. */
+	private DecisionTree originalTree; //Tree before pruning. It is not modified.
+
+	/** The pruned ids. */
+	private int[] prunedIds; //Ids of the nodes collapsed, in order.
+
+	/** The num correct. */
+	private int[] numCorrect; //Position k holds the instances correctly classified after k steps.
+
+	/** The num instances. */
+	private int numInstances; //Number of validation instances.
+
+	/**
+	 * Instantiates a new pruning trajectory.
+	 *
+	 * @param originalTree the original tree
+	 * @param prunedIds the ids of the nodes collapsed, in order
+	 * @param numCorrectAfterStep the instances correctly classified after each step, starting with step 0
+	 * @param numInstances the number of validation instances
+	 */
+	PruningTrajectory(DecisionTree originalTree, List<Integer> prunedIds, List<Integer> numCorrectAfterStep, int numInstances){
+		this.originalTree=originalTree;
+		this.prunedIds=new int[prunedIds.size()];
+		for (int i=0; i<prunedIds.size(); i++){
+			this.prunedIds[i]=prunedIds.get(i);
+		}
+		numCorrect=new int[numCorrectAfterStep.size()];
+		for (int i=0; i<numCorrectAfterStep.size(); i++){
+			numCorrect[i]=numCorrectAfterStep.get(i);
+		}
+		this.numInstances=numInstances;
+	}
+
+	/**
+	 * Gets the number of steps, that is, of nodes collapsed by the full pruning.
+	 *
+	 * @return the number of steps
+	 */
+	public int getNumSteps(){
+		return prunedIds.length;
+	}
+
+	/**
+	 * Gets the id of the node collapsed in a step.
+	 *
+	 * @param step the step, from 1 to getNumSteps()
+	 * @return the id of the node
+	 */
+	public int getPrunedId(int step){
+		return prunedIds[step-1];
+	}
+
+	/**
+	 * Gets the accuracy over the validation data after a step, as calculated by getAccuracyOverValidationData.
+	 *
+	 * @param step the step, from 0 (the original tree) to getNumSteps()
+	 * @return the accuracy
+	 */
+	public double getAccuracy(int step){
+		if (numInstances>0){
+			return (double)numCorrect[step]/numInstances;
+		}
+		return 0.0;
+	}
+
+	/**
+	 * Gets the original tree.
+	 *
+	 * @return the original tree
+	 */
+	public DecisionTree getOriginalTree(){
+		return originalTree;
+	}
+
+	/**
+	 * Function that returns the tree after a step: a version of the original tree where the nodes of the first steps are collapsed.
+	 * It is built with withNodeCollapsed, so it shares with the original tree every subtree that is not on the path to a collapsed node,
+	 * and it takes time proportional to the number of steps (times the depth of the tree). For step 0, it is the original tree itself.
+	 *
+	 * @param step the step, from 0 (the original tree) to getNumSteps()
+	 * @return the tree
+	 */
+	public DecisionTree getTreeAtStep(int step){
+		DecisionTree tree=originalTree;
+		for (int i=0; i<step; i++){
+			tree=tree.withNodeCollapsed(prunedIds[i]);
+		}
+		return tree;
+	}
+}
@@ -0,0 +1,281 @@
+package ml.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import jdk.jfr.EventType;
+
+/** ReducedErrorPruning class
+ *  <p>
+ *  Engine for the reduced error pruning of a decision tree, which routes the validation data through the tree only once.
+ *  <p>
+ *  While routing, it records for each node the number of validation instances that reach it and are of its most common class
+ *  (the instances classified correctly if the node is collapsed into a leaf), and the number that its subtree classifies correctly.
+ *  Collapsing a node then changes the number of correctly classified instances by the difference of both counts, and only the
+ *  subtree counts of its ancestors need to be updated. No copy of the tree is made, and nothing is classified again.
+ *  <p>
+ *  The nodes collapsed are the same, and in the same order, as with the greedy search of ID3Learning: in each round, all the non-leaf
+ *  nodes are tried, from the deepest level to the root and from left to right within a level, and the last one whose collapse
+ *  improves the accuracy of the tree at the start of the round is collapsed. Rounds go on while some collapse improves the accuracy.
+ *
+ * */
+public class ReducedErrorPruning {
+
+	/** The tree. */
+	private DecisionTree tree; //Root of the tree being pruned.
+
+	/** The num instances. */
+	private int numInstances; //Number of validation instances.
+
+	/** The nodes. */
+	private List<DecisionTree> nodes=new ArrayList<DecisionTree>(); //Nodes of the tree, in preorder.
+
+	/** The parent. */
+	private int[] parent; //Position of the parent of each node, -1 for the root.
+
+	/** The subtree end. */
+	private int[] subtreeEnd; //Position after the last node of the subtree of each node.
+
+	/** The collapse correct. */
+	private int[] collapseCorrect; //Instances reaching each node which are of its most common class.
+
+	/** The subtree correct. */
+	private int[] subtreeCorrect; //Instances reaching each node which are correctly classified by its (current) subtree.
+
+	/** The order. */
+	private int[] order; //Non-leaf nodes in the order they are tried: deepest level first, preorder within a level.
+
+	/** The order position. */
+	private int[] orderPosition; //Position of each non-leaf node in the order, -1 for leaves.
+
+	/** The num correct. */
+	private int numCorrect; //Instances correctly classified by the (current) tree.
+
+	/** The num candidates evaluated. */
+	private long numCandidatesEvaluated; //Checks of whether collapsing a node improves the accuracy.
+
+	/** The num rounds. */
+	private int numRounds;
+
+	/**
+	 * Instantiates a new pruning engine, routing the validation data through the tree.
+	 *
+	 * @param tree the root of the tree
+	 * @param validationData the validation data
+	 */
+	public ReducedErrorPruning(DecisionTree tree, Dataset validationData){
+		this.tree=tree;
+		numInstances=validationData.getNumRows();
+		int numNodes=tree.getNumNodes();
+		parent=new int[numNodes];
+		subtreeEnd=new int[numNodes];
+		addInPreOrder(tree, -1);
+		collapseCorrect=new int[numNodes];
+		subtreeCorrect=new int[numNodes];
+		int mostCommonClass[]=new int[numNodes];
+		for (int n=0; n<numNodes; n++){
+			mostCommonClass[n]=nodes.get(n).isLeaf()?-1:nodes.get(n).getMostCommonClass();
+		}
+		int childByValue[][]=buildChildTables();
+		for (int r=0; r<validationData.getNumRows(); r++){ //Single pass of the validation data through the tree
+			int classValue=validationData.getClassValue(r);
+			int node=0;
+			while (true){
+				DecisionTree current=nodes.get(node);
+				if (current.isLeaf()){
+					if (current.getOutputVariable()==classValue){
+						subtreeCorrect[node]++;
+					}
+					break;
+				}
+				if (mostCommonClass[node]==classValue){
+					collapseCorrect[node]++;
+				}
+				int value=validationData.getValue(r, current.getAttributeUsed());
+				if (value>=childByValue[node].length || childByValue[node][value]<0){
+					if (classValue==0){ //Without a descendant for the value, classify returns 0
+						subtreeCorrect[node]++;
+					}
+					break;
+				}
+				node=childByValue[node][value];
+			}
+		}
+		for (int n=numNodes-1; n>0; n--){ //Children come after their parents in preorder
+			subtreeCorrect[parent[n]]+=subtreeCorrect[n];
+		}
+		numCorrect=subtreeCorrect[0];
+		buildOrder();
+	}
+
+	/**
+	 * Recursive function that adds the nodes of a subtree in preorder.
+	 *
+	 * @param node the node
+	 * @param parentPosition the position of the parent
+	 */
+	private void addInPreOrder(DecisionTree node, int parentPosition){
+		int position=nodes.size();
+		nodes.add(node);
+		parent[position]=parentPosition;
+		for (int i=0; i<node.getNumDescendants(); i++){
+			addInPreOrder(node.getDescendant(i), position);
+		}
+		subtreeEnd[position]=nodes.size();
+	}
+
+	/**
+	 * Function that builds, for each non-leaf node, the table of the position of the descendant followed for each value.
+	 * As in classify, the first descendant with a value is the one followed.
+	 *
+	 * @return the child tables, with -1 for values without a descendant
+	 */
+	private int[][] buildChildTables(){
+		int childByValue[][]=new int[nodes.size()][];
+		for (int n=0; n<nodes.size(); n++){
+			DecisionTree node=nodes.get(n);
+			int numValues=0;
+			for (int i=0; i<node.getNumDescendants(); i++){
+				numValues=Math.max(numValues, node.getDescendant(i).getIncomingValueIndex()+1);
+			}
+			childByValue[n]=new int[numValues];
+			for (int v=0; v<numValues; v++){
+				childByValue[n][v]=-1;
+			}
+		}
+		for (int n=1; n<nodes.size(); n++){
+			int value=nodes.get(n).getIncomingValueIndex();
+			if (childByValue[parent[n]][value]<0){
+				childByValue[parent[n]][value]=n;
+			}
+		}
+		return childByValue;
+	}
+
+	/**
+	 * Function that builds the order in which non-leaf nodes are tried: by level, from the deepest, and in preorder within a level.
+	 */
+	private void buildOrder(){
+		int maxLevel=0;
+		int numNonLeaf=0;
+		for (int n=0; n<nodes.size(); n++){
+			maxLevel=Math.max(maxLevel, nodes.get(n).getLevel());
+			if (!nodes.get(n).isLeaf()){
+				numNonLeaf++;
+			}
+		}
+		int levelStart[]=new int[maxLevel+2]; //Counting sort by level, from the deepest
+		for (int n=0; n<nodes.size(); n++){
+			if (!nodes.get(n).isLeaf()){
+				levelStart[maxLevel-nodes.get(n).getLevel()+1]++;
+			}
+		}
+		for (int l=1; l<levelStart.length; l++){
+			levelStart[l]+=levelStart[l-1];
+		}
+		order=new int[numNonLeaf];
+		orderPosition=new int[nodes.size()];
+		for (int n=0; n<nodes.size(); n++){
+			orderPosition[n]=-1;
+			if (!nodes.get(n).isLeaf()){
+				orderPosition[n]=levelStart[maxLevel-nodes.get(n).getLevel()]++;
+				order[orderPosition[n]]=n;
+			}
+		}
+	}
+
+	/**
+	 * Function that carries out the pruning, and returns its trajectory: the ids of the nodes collapsed, in order, with the number of
+	 * validation instances correctly classified after each collapse. The tree itself is not modified, but the counts of the engine are,
+	 * so it is carried out once per engine.
+	 *
+	 * @return the pruning trajectory
+	 */
+	public PruningTrajectory prune(){
+		List<Integer> prunedIds=new ArrayList<Integer>();
+		List<Integer> numCorrectAfterStep=new ArrayList<Integer>();
+		numCorrectAfterStep.add(numCorrect);
+		boolean candidateEvents=EventType.getEventType(PruningCandidateEvent.class).isEnabled(); //Checked once, so disabled events cost nothing per candidate
+		BitSet improving=new BitSet(order.length); //Positions, in the order, of the nodes whose collapse improves the accuracy
+		for (int p=0; p<order.length; p++){
+			if (candidateEvents){
+				commitCandidateEvent(order[p]);
+			}
+			if (collapseCorrect[order[p]]>subtreeCorrect[order[p]]){
+				improving.set(p);
+			}
+		}
+		numCandidatesEvaluated+=order.length;
+		numRounds++;
+		int position;
+		while ((position=improving.previousSetBit(order.length-1))>=0){ //The last one tried is the one kept
+			numRounds++;
+			PruningRoundEvent event=new PruningRoundEvent();
+			event.begin();
+			int ancestorsEvaluated=0;
+			int node=order[position];
+			int delta=collapseCorrect[node]-subtreeCorrect[node];
+			numCorrect+=delta;
+			prunedIds.add(nodes.get(node).getId());
+			numCorrectAfterStep.add(numCorrect);
+			for (int n=node; n<subtreeEnd[node]; n++){ //The node becomes a leaf, and its descendants leave the tree
+				if (orderPosition[n]>=0){
+					improving.clear(orderPosition[n]);
+				}
+			}
+			subtreeCorrect[node]=collapseCorrect[node];
+			for (int a=parent[node]; a>=0; a=parent[a]){ //Ancestors classify delta more instances correctly, so collapsing them gains less
+				subtreeCorrect[a]+=delta;
+				numCandidatesEvaluated++;
+				ancestorsEvaluated++;
+				if (candidateEvents){
+					commitCandidateEvent(a);
+				}
+				if (collapseCorrect[a]<=subtreeCorrect[a]){
+					improving.clear(orderPosition[a]);
+				}
+			}
+			if (event.shouldCommit()){
+				event.step=prunedIds.size();
+				event.nodeId=nodes.get(node).getId();
+				event.candidatesEvaluated=ancestorsEvaluated;
+				event.numCorrect=numCorrect;
+				event.commit();
+			}
+		}
+		return new PruningTrajectory(tree, prunedIds, numCorrectAfterStep, numInstances);
+	}
+
+	/**
+	 * Function that records the evaluation of a candidate, as a flight recorder event.
+	 *
+	 * @param node the position of the node
+	 */
+	private void commitCandidateEvent(int node){
+		PruningCandidateEvent event=new PruningCandidateEvent();
+		event.nodeId=nodes.get(node).getId();
+		event.level=nodes.get(node).getLevel();
+		event.gain=collapseCorrect[node]-subtreeCorrect[node];
+		event.commit();
+	}
+
+	/**
+	 * Gets the number of candidates evaluated by prune: every non-leaf node once, and then the ancestors of each node collapsed,
+	 * which are the only candidates whose gain changes.
+	 *
+	 * @return the number of candidates evaluated
+	 */
+	public long getNumCandidatesEvaluated(){
+		return numCandidatesEvaluated;
+	}
+
+	/**
+	 * Gets the number of rounds of prune: one per node collapsed, and the last one, which finds no collapse improving the accuracy.
+	 *
+	 * @return the number of rounds
+	 */
+	public int getNumRounds(){
+		return numRounds;
+	}
+}
@@ -0,0 +1,142 @@
+package ml.model;
+
+/** TreeNodeView class
+ *  <p>
+ *  Read-only view of a node of a decision tree, with the information shown when drawing it. It gives the same values as the
+ *  attributes of the node in the XML of printToXML (classes, id, parentid, level, entropy, isLeaf and attr), already typed,
+ *  so that a view can draw a tree without writing and parsing its XML.
+ *
+ * */
+public class TreeNodeView {
+
+	/** The node. */
+	private DecisionTree node;
+
+	/**
+	 * Instantiates a new view of a node.
+	 *
+	 * @param node the node
+	 */
+	TreeNodeView(DecisionTree node){
+		this.node=node;
+	}
+
+	/**
+	 * Gets the id.
+	 *
+	 * @return the id
+	 */
+	public int getId(){
+		return node.getId();
+	}
+
+	/**
+	 * Gets the parent id.
+	 *
+	 * @return the parent id, -1 for the root
+	 */
+	public int getParentId(){
+		return node.getParentId();
+	}
+
+	/**
+	 * Gets the level.
+	 *
+	 * @return the level, 0 for the root
+	 */
+	public int getLevel(){
+		return node.getLevel();
+	}
+
+	/**
+	 * Checks if the node is the root.
+	 *
+	 * @return true, if it is the root
+	 */
+	public boolean isRoot(){
+		return node.getIncomingValueIndex()==-1;
+	}
+
+	/**
+	 * Checks if the node is a leaf.
+	 *
+	 * @return true, if it is a leaf
+	 */
+	public boolean isLeaf(){
+		return node.isLeaf();
+	}
+
+	/**
+	 * Gets the number of training instances of a class in the node.
+	 *
+	 * @param classNum the class num
+	 * @return the number of instances
+	 */
+	public int getNumInstancesInClass(int classNum){
+		return node.getNumInstancesInClass(classNum);
+	}
+
+	/**
+	 * Gets the distribution of the instances among the classes, as in the classes attribute of the XML: all the classes for the root,
+	 * and only those with instances for other nodes.
+	 *
+	 * @return the classes
+	 */
+	public String getClasses(){
+		CategoricalType classHeader=node.getClassHeader();
+		StringBuilder classes=new StringBuilder();
+		for (int i=0; i<classHeader.getNumCategories(); i++){
+			int count=node.getNumInstancesInClass(i);
+			if (count>0 || isRoot()){
+				classes.append(classHeader.getCategory(i)).append(':').append(count);
+				if (i<classHeader.getNumCategories()-1){
+					classes.append(',');
+				}
+			}
+		}
+		return classes.toString();
+	}
+
+	/**
+	 * Gets the entropy.
+	 *
+	 * @return the entropy
+	 */
+	public double getEntropy(){
+		return node.getEntropy();
+	}
+
+	/**
+	 * Gets the entropy with three decimals, as in the entropy attribute of the XML.
+	 *
+	 * @return the entropy text
+	 */
+	public String getEntropyText(){
+		return String.format("%.3f", node.getEntropy());
+	}
+
+	/**
+	 * Gets the branch leading to the node, as in the attr attribute of the XML (attribute=value).
+	 *
+	 * @return the branch, an empty string for the root
+	 */
+	public String getAttr(){
+		if (node.getIncomingAttributeIndex()==-1){
+			return "";
+		}
+		CategoricalType incomingAttribute=node.getAttributeHeaderList().get(node.getIncomingAttributeIndex());
+		return incomingAttribute.getName()+"="+incomingAttribute.getCategory(node.getIncomingValueIndex());
+	}
+
+	/**
+	 * Gets the class assigned by the node, if it is a leaf.
+	 *
+	 * @return the name of the class, an empty string if it is not a leaf
+	 */
+	public String getOutput(){
+		if (!node.isLeaf() || node.getOutputVariable()<0){
+			return "";
+		}
+		return node.getClassHeader().getCategory(node.getOutputVariable());
+	}
+}
@@ -0,0 +1,212 @@
+package ml.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/** XmlTreeWriter class
+ *  <p>
+ *  Writes a decision tree in the XML format of printToXML, directly to a Writer, in a single walk of the tree.
+ *  <p>
+ *  The class counts and the entropy are those cached in each node when it was built. Numbers are written digit by digit into
+ *  a reusable buffer, instead of concatenating strings. Entropies are written with three decimals, as String.format("%.3f") does
+ *  (rounding half up, with the decimal separator of the default locale): values too close to halfway between two results,
+ *  and values which are negative or not in the usual range, are still formatted with String.format, so the output is identical.
+ *  <p>
+ *  The Writer should be buffered. It is not closed.
+ *
+ * */
+public class XmlTreeWriter {
+
+	/** Distance to halfway (in thousandths) under which the rounding is left to String.format. */
+	private static final double HALFWAY_MARGIN=1e-6;
+
+	/** The writer. */
+	private Writer writer;
+
+	/** The buffer. */
+	private char[] buffer=new char[32]; //For writing numbers.
+
+	/** The decimal separator. */
+	private char decimalSeparator;
+
+	/** The fast format flag. */
+	private boolean fastFormat; //False if the default locale does not write plain digits, then String.format is always used.
+
+	/** The line separator. */
+	private String lineSeparator=System.lineSeparator(); //As in PrintWriter.println
+
+	/**
+	 * Instantiates a new XML tree writer.
+	 *
+	 * @param writer the writer
+	 */
+	public XmlTreeWriter(Writer writer){
+		this.writer=writer;
+		DecimalFormatSymbols symbols=DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+		decimalSeparator=symbols.getDecimalSeparator();
+		fastFormat=symbols.getZeroDigit()=='0';
+	}
+
+	/**
+	 * Recursive function that writes a tree, or the subtree of a node.
+	 *
+	 * @param node the node
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void write(DecisionTree node) throws IOException{
+		CategoricalType classHeader=node.getClassHeader();
+		if (node.isLeaf() && node.getIncomingAttributeIndex()!=-1){//Is a leaf
+			writeNodeStart(node, classHeader, "1");
+			writer.write(classHeader.getCategory(node.getOutputVariable()));
+			writer.write("</node>");
+			writer.write(lineSeparator);
+			return;
+		}
+		if (node.getIncomingValueIndex()!=-1){//Is not the root node.
+			writeNodeStart(node, classHeader, "0");
+			writer.write(lineSeparator);
+		}
+		else{//Is the root node
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+			writer.write(lineSeparator);
+			writer.write("<tree classes=\"");
+			for (int i=0; i<classHeader.getNumCategories(); i++){ //All the classes, also those without instances
+				writer.write(classHeader.getCategory(i));
+				writer.write(':');
+				writeInt(node.getNumInstancesInClass(i));
+				if (i<classHeader.getNumCategories()-1){
+					writer.write(',');
+				}
+			}
+			writeIds(node);
+			writer.write("\">");
+			writer.write(lineSeparator);
+		}
+		for (int i=0; i<node.getNumDescendants(); i++){
+			write(node.getDescendant(i)); //Write descendants recursively
+		}
+		if (node.getIncomingValueIndex()!=-1){//Close nodes that are not leaves.
+			writeTabs(node.getLevel());
+			writer.write("</node>");
+		}
+		else{//Close root
+			writer.write("</tree>");
+		}
+		writer.write(lineSeparator);
+	}
+
+	/**
+	 * Function that writes the start tag of a node which is not the root, up to the closing bracket.
+	 *
+	 * @param node the node
+	 * @param classHeader the class header
+	 * @param isLeaf the value of the isLeaf attribute
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeNodeStart(DecisionTree node, CategoricalType classHeader, String isLeaf) throws IOException{
+		writeTabs(node.getLevel());
+		writer.write("<node classes=\"");
+		for (int i=0; i<classHeader.getNumCategories(); i++){ //Only the classes with instances, each followed by a comma unless it is the last class
+			int count=node.getNumInstancesInClass(i);
+			if (count>0){
+				writer.write(classHeader.getCategory(i));
+				writer.write(':');
+				writeInt(count);
+				if (i<classHeader.getNumCategories()-1){
+					writer.write(',');
+				}
+			}
+		}
+		writeIds(node);
+		writer.write("\" isLeaf=\"");
+		writer.write(isLeaf);
+		writer.write("\" attr=\"");
+		CategoricalType incomingAttribute=node.getAttributeHeaderList().get(node.getIncomingAttributeIndex());
+		writer.write(incomingAttribute.getName());
+		writer.write('=');
+		writer.write(incomingAttribute.getCategory(node.getIncomingValueIndex()));
+		writer.write("\">");
+	}
+
+	/**
+	 * Function that writes the id, parent id, level and entropy attributes, after the classes attribute (whose quotes it closes).
+	 *
+	 * @param node the node
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeIds(DecisionTree node) throws IOException{
+		writer.write("\" id=\"");
+		writeInt(node.getId());
+		writer.write("\" parentid=\"");
+		writeInt(node.getParentId());
+		writer.write("\" level=\"");
+		writeInt(node.getLevel());
+		writer.write("\" entropy=\"");
+		writeThreeDecimals(node.getEntropy());
+	}
+
+	/**
+	 * Function that writes tabs.
+	 *
+	 * @param count the number of tabs
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeTabs(int count) throws IOException{
+		for (int i=0; i<count; i++){
+			writer.write('\t');
+		}
+	}
+
+	/**
+	 * Function that writes an int in decimal.
+	 *
+	 * @param value the value
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeInt(int value) throws IOException{
+		if (value<0){
+			writer.write(Integer.toString(value));
+			return;
+		}
+		int position=buffer.length;
+		do {
+			buffer[--position]=(char)('0'+value%10);
+			value/=10;
+		} while (value>0);
+		writer.write(buffer, position, buffer.length-position);
+	}
+
+	/**
+	 * Function that writes a double with three decimals, as String.format("%.3f", value).
+	 *
+	 * @param value the value
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeThreeDecimals(double value) throws IOException{
+		double scaled=value*1000;
+		if (!fastFormat || Double.isNaN(value) || Double.compare(value, 0.0)<0 || scaled>=Integer.MAX_VALUE){ //Negative values, including -0.0, keep their sign
+			writer.write(String.format("%.3f", value));
+			return;
+		}
+		double floor=Math.floor(scaled);
+		double fraction=scaled-floor;
+		if (Math.abs(fraction-0.5)<HALFWAY_MARGIN){ //Too close to call from the binary value
+			writer.write(String.format("%.3f", value));
+			return;
+		}
+		int thousandths=(int)floor+(fraction>0.5?1:0);
+		int position=buffer.length;
+		for (int i=0; i<3; i++){
+			buffer[--position]=(char)('0'+thousandths%10);
+			thousandths/=10;
+		}
+		buffer[--position]=decimalSeparator;
+		do {
+			buffer[--position]=(char)('0'+thousandths%10);
+			thousandths/=10;
+		} while (thousandths>0);
+		writer.write(buffer, position, buffer.length-position);
+	}
+}
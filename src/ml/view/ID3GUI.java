@@ -1,20 +1,18 @@
 package ml.view;
 
 import java.awt.Dimension;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import javax.swing.JPanel;
 
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-
 import com.mxgraph.swing.mxGraphComponent;
 import com.mxgraph.view.mxGraph;
 
 import ml.control.ID3Singleton;
 import ml.model.DrawnNodeInfo;
+import ml.model.TreeNodeView;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -50,7 +48,7 @@ public class ID3GUI extends javax.swing.JFrame {
 	
 	/*Variables required for tree*/
 	/** The tree. */
-	private Elements tree=null;				//Stores the whole tree elements
+	private List<TreeNodeView> tree=null;				//Stores the whole tree elements
 	
 	/** The current parent in level. */
 	private int currentParentInLevel=-1;	//Housekeeping variable used to get parent to extract children from on next click
@@ -95,21 +93,16 @@ public class ID3GUI extends javax.swing.JFrame {
 	 */
 	public void loadTree() {
 		if(tree==null|| redraw){ 
-			try {
-				tree=ID3Singleton.getInstance().getTreeForDrawing(pruned);
-				maxTreeLevel=getMaxTreeLevel();
-				currentParentInLevel=-2;
-				graph=null;
-				if (ourCanvas!=null){
-					ourCanvas.removeAll();
-				}
-				currentLevel=0;
-				if (processedNodes!=null){
-					processedNodes.clear();
-				}
-			} catch (IOException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();				
+			tree=ID3Singleton.getInstance().getTreeForDrawing(pruned);
+			maxTreeLevel=getMaxTreeLevel();
+			currentParentInLevel=-2;
+			graph=null;
+			if (ourCanvas!=null){
+				ourCanvas.removeAll();
+			}
+			currentLevel=0;
+			if (processedNodes!=null){
+				processedNodes.clear();
 			}
 		}
 	}
@@ -173,8 +166,8 @@ public class ID3GUI extends javax.swing.JFrame {
 		if (tree!=null){
 			int foundLevel=0;
 			for (int i=0; i<tree.size(); i++){
-				if (Integer.parseInt(tree.get(i).attr("level"))>foundLevel){
-					foundLevel=Integer.parseInt(tree.get(i).attr("level"));
+				if (tree.get(i).getLevel()>foundLevel){
+					foundLevel=tree.get(i).getLevel();
 				}
 			}
 			return foundLevel;
@@ -190,11 +183,11 @@ public class ID3GUI extends javax.swing.JFrame {
 	 *
 	 * @return the current level nodes
 	 */
-	public Elements getCurrentLevelNodes(){
-		Elements retVal=new Elements();
+	public List<TreeNodeView> getCurrentLevelNodes(){
+		List<TreeNodeView> retVal=new ArrayList<TreeNodeView>();
 		for (int i=0; i<tree.size(); i++){
-			if (Integer.parseInt(tree.get(i).attr("level"))==currentLevel
-					&& Integer.parseInt(tree.get(i).attr("parentId"))>currentParentInLevel ){  
+			if (tree.get(i).getLevel()==currentLevel
+					&& tree.get(i).getParentId()>currentParentInLevel ){  
 				retVal.add(tree.get(i));
 			}
 		}
@@ -209,11 +202,11 @@ public class ID3GUI extends javax.swing.JFrame {
 	 *
 	 * @return the step nodes
 	 */
-	public Elements getStepNodes(){
-		Elements retVal=new Elements();
+	public List<TreeNodeView> getStepNodes(){
+		List<TreeNodeView> retVal=new ArrayList<TreeNodeView>();
 		for (int i=0; i<tree.size(); i++){
-			if (Integer.parseInt(tree.get(i).attr("level"))==currentLevel
-					&& Integer.parseInt(tree.get(i).attr("parentId"))==currentParentInLevel ){ //TODO parent used
+			if (tree.get(i).getLevel()==currentLevel
+					&& tree.get(i).getParentId()==currentParentInLevel ){ //TODO parent used
 				retVal.add(tree.get(i));
 			}
 		}
@@ -251,7 +244,7 @@ public class ID3GUI extends javax.swing.JFrame {
 	 *
 	 * @param elements the elements
 	 */
-	public void drawTree(Elements elements) {
+	public void drawTree(List<TreeNodeView> elements) {
 		if(graph==null) {
 			graph= new mxGraph();
 			parent = graph.getDefaultParent();
@@ -266,12 +259,12 @@ public class ID3GUI extends javax.swing.JFrame {
 			drawnNodesMap = new HashMap<Integer,Object>();
 
 			//Node to draw now is inserted into processedNodes list for future tracking.
-			DrawnNodeInfo currentNode = new DrawnNodeInfo((Integer.parseInt(elements.get(0).attr("parentid"))/*+1*/), //TODO parent used
-					Integer.parseInt(elements.get(0).attr("id")),
+			DrawnNodeInfo currentNode = new DrawnNodeInfo(elements.get(0).getParentId()/*+1*/, //TODO parent used
+					elements.get(0).getId(),
 					currentX,
-					(Integer.parseInt(elements.get(0).attr("level")))*20, 
-					"Instances distribution: \n"+elements.get(0).attr("classes")+"\nEntropy: "+elements.get(0).attr("entropy"),
-					elements.get(0).attr("attr"),
+					elements.get(0).getLevel()*20, 
+					"Instances distribution: \n"+elements.get(0).getClasses()+"\nEntropy: "+elements.get(0).getEntropyText(),
+					elements.get(0).getAttr(),
 					this.getWidth());
 			processedNodes.add(currentNode);
 
@@ -280,7 +273,7 @@ public class ID3GUI extends javax.swing.JFrame {
 			Object drawingObject = graph.insertVertex(
 					parent, 
 					null, //Node id 
-					"Instances distribution: \n"+elements.get(0).attr("classes")+"\nEntropy: "+elements.get(0).attr("entropy"), 
+					"Instances distribution: \n"+elements.get(0).getClasses()+"\nEntropy: "+elements.get(0).getEntropyText(), 
 					currentX, 
 					currentY, 
 					graphNodeWidth,
@@ -288,7 +281,7 @@ public class ID3GUI extends javax.swing.JFrame {
 					"whiteSpace=wrap;rounded=true;fillColor=#0066FF;fontColor=white",//root style
 					false);
 			//Put the id, object into the hashmap
-			drawnNodesMap.put(Integer.parseInt(elements.get(0).attr("id")), drawingObject);
+			drawnNodesMap.put(elements.get(0).getId(), drawingObject);
 
 			graph.getModel().endUpdate();
 			
@@ -300,8 +293,8 @@ public class ID3GUI extends javax.swing.JFrame {
 			
 		}
 		else {
-			int currentElemParentID = ((Integer.parseInt(elements.get(0).attr("parentid")))); 
-			int currentElemLevel = Integer.parseInt(elements.get(0).attr("level"));
+			int currentElemParentID = elements.get(0).getParentId(); 
+			int currentElemLevel = elements.get(0).getLevel();
 			int xOffset=0;
 			int currentWidth= this.getWidth()/elements.size();
 			
@@ -312,9 +305,9 @@ public class ID3GUI extends javax.swing.JFrame {
 				xOffset=currentNodeParent.x;
 			} 
 			for(int i=0;i<elements.size();i++) {
-				Element currentElement = elements.get(i);
-				Object currentElementParent = drawnNodesMap.get((Integer.parseInt(currentElement.attr("parentid")))); 
-				String label = "Instances distribution: \n"+currentElement.attr("classes")+"\nEntropy: "+currentElement.attr("entropy");
+				TreeNodeView currentElement = elements.get(i);
+				Object currentElementParent = drawnNodesMap.get(currentElement.getParentId()); 
+				String label = "Instances distribution: \n"+currentElement.getClasses()+"\nEntropy: "+currentElement.getEntropyText();
 				int currentDrawX = xOffset+(i*currentWidth);
 				int currentDrawY =  (2*currentElemLevel) * 80;//Determines the y distance between levels.
 				while(overlapsWithExistingCells(currentDrawX,currentDrawY)) {
@@ -327,7 +320,7 @@ public class ID3GUI extends javax.swing.JFrame {
 				/* uneditable */
 				
 				String color="";
-				if (currentElement.attr("isLeaf").contains("1")){
+				if (currentElement.isLeaf()){
 					color="whiteSpace=wrap;rounded=true;fillColor=white;fontColor=black";
 				}
 				else{
@@ -344,21 +337,21 @@ public class ID3GUI extends javax.swing.JFrame {
 						graphNodeHeight,
 						color,//Style for leaf or node
 						false);
-				graph.insertEdge(parent, null, currentElement.attr("attr"), currentElementParent, drawingObject, "fontColor=black");
+				graph.insertEdge(parent, null, currentElement.getAttr(), currentElementParent, drawingObject, "fontColor=black");
 				
 				graph.getModel().endUpdate();
 				this.revalidate();
 				
 
 				//Add id,object to the hashmap to track position
-				drawnNodesMap.put(Integer.parseInt(currentElement.attr("id")), drawingObject);
+				drawnNodesMap.put(currentElement.getId(), drawingObject);
 				
 				//Add the object info to drawnNodesMap
-				DrawnNodeInfo currentNode = new DrawnNodeInfo((Integer.parseInt(elements.get(i).attr("parentid"))), //TODO parent used
-						Integer.parseInt(elements.get(i).attr("id")),
+				DrawnNodeInfo currentNode = new DrawnNodeInfo(elements.get(i).getParentId(), //TODO parent used
+						elements.get(i).getId(),
 						currentDrawX, currentDrawY,
-						elements.get(i).attr("classes"),
-						elements.get(i).attr("attr"),
+						elements.get(i).getClasses(),
+						elements.get(i).getAttr(),
 						currentWidth
 						);
 				processedNodes.add(currentNode);
@@ -377,6 +370,7 @@ public class ID3GUI extends javax.swing.JFrame {
         ourCanvas= new JPanel();
         drawTreeButton = new javax.swing.JButton();
         pruneTreeButton = new javax.swing.JButton();
+        exportXmlButton = new javax.swing.JButton();
         jPanel5 = new javax.swing.JPanel();
         jScrollPane3 = new javax.swing.JScrollPane();
         jTextArea2 = new javax.swing.JTextArea();
@@ -410,6 +404,15 @@ public class ID3GUI extends javax.swing.JFrame {
                 pruneTree(evt);
             }
         });
+        
+        exportXmlButton.setText("Export XML");
+        exportXmlButton.setToolTipText("Saves the tree as it is shown, pruned or not, to an XML file.");
+        exportXmlButton.setEnabled(false);
+        exportXmlButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                exportXmlAction(evt);
+            }
+        });
 
         javax.swing.GroupLayout jPanel3Layout = new javax.swing.GroupLayout(jPanel3);
         jPanel3.setLayout(jPanel3Layout);
@@ -426,6 +429,8 @@ public class ID3GUI extends javax.swing.JFrame {
                         .addComponent(drawTreeButton)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
                         .addComponent(pruneTreeButton)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                        .addComponent(exportXmlButton)
                         .addGap(24, 24, 24))))
             .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, jPanel3Layout.createSequentialGroup()
                 .addGap(12, 12, 12)
@@ -442,7 +447,8 @@ public class ID3GUI extends javax.swing.JFrame {
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
                 .addGroup(jPanel3Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(drawTreeButton)
-                    .addComponent(pruneTreeButton))
+                    .addComponent(pruneTreeButton)
+                    .addComponent(exportXmlButton))
                 .addGap(14, 14, 14))
         );
 
@@ -592,6 +598,7 @@ public class ID3GUI extends javax.swing.JFrame {
         redraw=true;
 		drawTreeButton.setEnabled(true);
 		pruneTreeButton.setEnabled(false);
+		exportXmlButton.setEnabled(false);
 		if (ourCanvas!=null){
 			ourCanvas.removeAll();
 		}
@@ -611,6 +618,7 @@ public class ID3GUI extends javax.swing.JFrame {
             	redraw=true;
             	drawTreeButton.setEnabled(true);
         		pruneTreeButton.setEnabled(false);
+        		exportXmlButton.setEnabled(false);
         		pruned=false;
             	
             	/**Updating the current labels*/
@@ -645,6 +653,7 @@ public class ID3GUI extends javax.swing.JFrame {
 		if(tree==null || redraw) {
 			loadTree();
 			redraw=false;
+			exportXmlButton.setEnabled(true);
 			String textForLabel="Tree | Data used: ";
 			if (ID3Singleton.getInstance().usingDefaultDataFolder()){
 				textForLabel+="Default ";
@@ -664,13 +673,13 @@ public class ID3GUI extends javax.swing.JFrame {
 		}
 		boolean somethingPrinted = false;
 		while (currentLevel<=maxTreeLevel && !somethingPrinted){
-    		Elements currentLevelList= getCurrentLevelNodes();
+    		List<TreeNodeView> currentLevelList= getCurrentLevelNodes();
     		if (currentLevelList.isEmpty()){
     	    	currentLevel++; //Have an empty list 
     	    	currentParentInLevel=-1; //New Level
     		}
     		else{
-    			currentParentInLevel=Integer.parseInt(currentLevelList.get(0).attr("parentId")); //TODO parent used
+    			currentParentInLevel=currentLevelList.get(0).getParentId(); //TODO parent used
     			currentLevelList=getStepNodes();
     			drawTree(currentLevelList); //<-Line added...
     			
@@ -731,6 +740,23 @@ public class ID3GUI extends javax.swing.JFrame {
     	}
     }                                        
 
+    /*Function that implements the changes when the "Export XML" button is pressed*/
+    /**
+     * Export XML action.
+     *
+     * @param evt the evt
+     */
+    private void exportXmlAction(java.awt.event.ActionEvent evt) {
+    	javax.swing.JFileChooser jFileChooser1 = new javax.swing.JFileChooser();
+    	jFileChooser1.setSelectedFile(new java.io.File("output.xml"));
+    	if (jFileChooser1.showSaveDialog(this)==javax.swing.JFileChooser.APPROVE_OPTION){
+    		if (ID3Singleton.getInstance().exportTreeToXML(jFileChooser1.getSelectedFile().getPath())!=1){
+    			javax.swing.JOptionPane.showMessageDialog(this, "The tree could not be written to "+jFileChooser1.getSelectedFile().getPath(),
+    					"Export XML", javax.swing.JOptionPane.ERROR_MESSAGE);
+    		}
+    	}
+    }
+
     /**
      * Main function, launching the ID3GUI.
      * 
@@ -776,6 +802,9 @@ public class ID3GUI extends javax.swing.JFrame {
     /** The prune tree button. */
     private javax.swing.JButton pruneTreeButton;
     
+    /** The export XML button. */
+    private javax.swing.JButton exportXmlButton;
+    
     /** The select another data button. */
     private javax.swing.JButton selectAnotherDataButton;
     